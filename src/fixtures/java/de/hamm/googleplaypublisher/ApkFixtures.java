@@ -0,0 +1,149 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+final class ApkFixtures {
+	private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+	private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+	private static final int PAYLOAD_ENTRY_SIZE = 4 * BYTES_PER_MEGABYTE;
+	private static final int RES_STRING_POOL_TYPE = 0x0001;
+	private static final int RES_XML_TYPE = 0x0003;
+	private static final int RES_XML_START_NAMESPACE_TYPE = 0x0100;
+	private static final int RES_XML_END_NAMESPACE_TYPE = 0x0101;
+	private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+	private static final int RES_XML_END_ELEMENT_TYPE = 0x0103;
+	private static final int RES_XML_RESOURCE_MAP_TYPE = 0x0180;
+	private static final int TYPE_STRING = 0x03;
+	private static final int TYPE_INT_DEC = 0x10;
+	private static final int ATTR_VERSION_CODE = 0x0101021b;
+	private static final int ATTR_VERSION_NAME = 0x0101021c;
+
+	private ApkFixtures() {
+	}
+
+	static File createApk(String packageName, int versionCode, int sizeInMegabytes, boolean manifestFirst)
+			throws IOException {
+		File file = File.createTempFile("benchmark", ".apk");
+		file.deleteOnExit();
+		ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			byte[] manifest = createBinaryManifest(packageName, versionCode, "1.0." + versionCode);
+			if (manifestFirst) {
+				writeEntry(zipOutputStream, "AndroidManifest.xml", manifest);
+			}
+			Random random = new Random(versionCode);
+			byte[] payload = new byte[PAYLOAD_ENTRY_SIZE];
+			long remaining = (long) sizeInMegabytes * BYTES_PER_MEGABYTE;
+			for (int i = 0; remaining > 0; i++) {
+				random.nextBytes(payload);
+				int length = (int) Math.min(payload.length, remaining);
+				writeEntry(zipOutputStream, String.format("assets/payload-%d.bin", i),
+						length == payload.length ? payload : Arrays.copyOf(payload, length));
+				remaining -= length;
+			}
+			if (!manifestFirst) {
+				writeEntry(zipOutputStream, "AndroidManifest.xml", manifest);
+			}
+		} finally {
+			zipOutputStream.close();
+		}
+		return file;
+	}
+
+	static byte[] createBinaryManifest(String packageName, int versionCode, String versionName) {
+		List<String> strings = Arrays.asList("versionCode", "versionName", "android", ANDROID_NAMESPACE, "",
+				"package", "manifest", packageName, versionName);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		writeChunk(body, createStringPool(strings));
+		ByteBuffer resourceMap = allocate(16);
+		resourceMap.putShort((short) RES_XML_RESOURCE_MAP_TYPE).putShort((short) 8).putInt(16);
+		resourceMap.putInt(ATTR_VERSION_CODE).putInt(ATTR_VERSION_NAME);
+		writeChunk(body, resourceMap);
+		writeChunk(body, createNamespace(RES_XML_START_NAMESPACE_TYPE, 2, 3));
+		ByteBuffer startElement = allocate(36 + 3 * 20);
+		startElement.putShort((short) RES_XML_START_ELEMENT_TYPE).putShort((short) 16).putInt(36 + 3 * 20);
+		startElement.putInt(1).putInt(-1);
+		startElement.putInt(-1).putInt(6).putShort((short) 20).putShort((short) 20).putShort((short) 3);
+		startElement.putShort((short) 0).putShort((short) 0).putShort((short) 0);
+		putAttribute(startElement, 3, 0, -1, TYPE_INT_DEC, versionCode);
+		putAttribute(startElement, 3, 1, 8, TYPE_STRING, 8);
+		putAttribute(startElement, -1, 5, 7, TYPE_STRING, 7);
+		writeChunk(body, startElement);
+		ByteBuffer endElement = allocate(24);
+		endElement.putShort((short) RES_XML_END_ELEMENT_TYPE).putShort((short) 16).putInt(24);
+		endElement.putInt(1).putInt(-1).putInt(-1).putInt(6);
+		writeChunk(body, endElement);
+		writeChunk(body, createNamespace(RES_XML_END_NAMESPACE_TYPE, 2, 3));
+		ByteBuffer document = allocate(8 + body.size());
+		document.putShort((short) RES_XML_TYPE).putShort((short) 8).putInt(8 + body.size());
+		document.put(body.toByteArray());
+		return document.array();
+	}
+
+	private static ByteBuffer createStringPool(List<String> strings) {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		int[] offsets = new int[strings.size()];
+		for (int i = 0; i < strings.size(); i++) {
+			offsets[i] = data.size();
+			String string = strings.get(i);
+			ByteBuffer encoded = allocate(2 + string.length() * 2 + 2);
+			encoded.putShort((short) string.length());
+			for (char j : string.toCharArray()) {
+				encoded.putChar(j);
+			}
+			encoded.putShort((short) 0);
+			data.write(encoded.array(), 0, encoded.capacity());
+		}
+		while (data.size() % 4 != 0) {
+			data.write(0);
+		}
+		int headerSize = 28;
+		int stringsStart = headerSize + offsets.length * 4;
+		ByteBuffer pool = allocate(stringsStart + data.size());
+		pool.putShort((short) RES_STRING_POOL_TYPE).putShort((short) headerSize).putInt(pool.capacity());
+		pool.putInt(strings.size()).putInt(0).putInt(0).putInt(stringsStart).putInt(0);
+		for (int i : offsets) {
+			pool.putInt(i);
+		}
+		pool.put(data.toByteArray());
+		return pool;
+	}
+
+	private static ByteBuffer createNamespace(int type, int prefix, int uri) {
+		ByteBuffer namespace = allocate(24);
+		namespace.putShort((short) type).putShort((short) 16).putInt(24);
+		namespace.putInt(1).putInt(-1).putInt(prefix).putInt(uri);
+		return namespace;
+	}
+
+	private static void putAttribute(ByteBuffer buffer, int namespace, int name, int rawValue, int dataType,
+									 int data) {
+		buffer.putInt(namespace).putInt(name).putInt(rawValue);
+		buffer.putShort((short) 8).put((byte) 0).put((byte) dataType).putInt(data);
+	}
+
+	private static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void writeChunk(ByteArrayOutputStream outputStream, ByteBuffer chunk) {
+		outputStream.write(chunk.array(), 0, chunk.capacity());
+	}
+
+	private static void writeEntry(ZipOutputStream zipOutputStream, String name, byte[] content)
+			throws IOException {
+		zipOutputStream.putNextEntry(new ZipEntry(name));
+		zipOutputStream.write(content);
+		zipOutputStream.closeEntry();
+	}
+}
@@ -0,0 +1,73 @@
+package de.hamm.googleplaypublisher;
+
+import net.erdfelt.android.apk.AndroidApk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ApkParsingBenchmark {
+	@Param({"10", "50", "200"})
+	public int sizeInMegabytes;
+
+	@Param({"true", "false"})
+	public boolean manifestFirst;
+
+	private final String apk = System.getProperty("benchmark.apk", "");
+	private File apkFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		apkFile = apk.length() > 0 ? new File(apk)
+				: ApkFixtures.createApk("de.hamm.benchmark", 1000, sizeInMegabytes, manifestFirst);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (apk.length() == 0) {
+			apkFile.delete();
+		}
+	}
+
+	@Benchmark
+	public String parseManifest() throws IOException {
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(apkFile));
+		try {
+			return new AndroidApk(inputStream).getAppVersionCode();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	@Benchmark
+	public String readManifestRandomAccess() throws IOException {
+		return ApkManifestReader.read(apkFile).getVersionCode();
+	}
+
+	@Benchmark
+	public ApkMetadata readApkMetadata() throws IOException, InterruptedException {
+		return new ReadApkMetadataCallable().invoke(apkFile, null);
+	}
+}
@@ -0,0 +1,71 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.services.androidpublisher.model.ApkListing;
+import com.google.api.services.androidpublisher.model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonSerializationBenchmark {
+	private final JsonFactory jsonFactory = new JacksonFactory();
+	private Track track;
+	private ApkListing apkListing;
+	private String trackJson;
+	private String apkListingJson;
+
+	@Setup
+	public void setUp() throws IOException {
+		List<Integer> versionCodes = new ArrayList<Integer>();
+		for (int i = 0; i < 20; i++) {
+			versionCodes.add(1000 + i);
+		}
+		track = new Track().setTrack("rollout").setUserFraction(0.05).setVersionCodes(versionCodes);
+		StringBuilder recentChanges = new StringBuilder();
+		while (recentChanges.length() < 500) {
+			recentChanges.append("Fixed a crash and improved performance. ");
+		}
+		apkListing = new ApkListing().setLanguage("en-US").setRecentChanges(recentChanges.substring(0, 500));
+		trackJson = jsonFactory.toString(track);
+		apkListingJson = jsonFactory.toString(apkListing);
+	}
+
+	@Benchmark
+	public String serializeTrack() throws IOException {
+		return jsonFactory.toString(track);
+	}
+
+	@Benchmark
+	public Track parseTrack() throws IOException {
+		return jsonFactory.fromString(trackJson, Track.class);
+	}
+
+	@Benchmark
+	public String serializeApkListing() throws IOException {
+		return jsonFactory.toString(apkListing);
+	}
+
+	@Benchmark
+	public ApkListing parseApkListing() throws IOException {
+		return jsonFactory.fromString(apkListingJson, ApkListing.class);
+	}
+}
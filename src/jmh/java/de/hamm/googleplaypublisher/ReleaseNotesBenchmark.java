@@ -0,0 +1,50 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.EnvVars;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReleaseNotesBenchmark {
+	@Param({"10", "100", "1000"})
+	public int envVarCount;
+
+	private EnvVars envVars;
+	private ReleaseNotes releaseNotes;
+
+	@Setup
+	public void setUp() {
+		envVars = new EnvVars();
+		for (int i = 0; i < envVarCount; i++) {
+			envVars.put("VARIABLE_" + i, "value of variable " + i);
+		}
+		envVars.put("BUILD_NUMBER", "1234");
+		envVars.put("GIT_COMMIT", "0123456789abcdef0123456789abcdef01234567");
+		StringBuilder template = new StringBuilder("Build ${BUILD_NUMBER} ($GIT_COMMIT)\n");
+		for (int i = 0; i < 10; i++) {
+			template.append(String.format("- Change %d: ${VARIABLE_%d}\n", i, i % envVarCount));
+		}
+		releaseNotes = new ReleaseNotes("en-US", template.toString());
+	}
+
+	@Benchmark
+	public String expand() {
+		return releaseNotes.expand(envVars).getReleaseNotes();
+	}
+}
@@ -0,0 +1,53 @@
+package de.hamm.googleplaypublisher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackUpdatePlanBenchmark {
+	@Param({"10", "1000", "100000"})
+	public int versionCodeCount;
+
+	private List<Integer> versionCodes;
+	private Integer currentVersionCode;
+
+	@Setup
+	public void setUp() {
+		versionCodes = new ArrayList<Integer>(versionCodeCount);
+		for (int i = 1; i <= versionCodeCount; i++) {
+			versionCodes.add(i);
+		}
+		Collections.shuffle(versionCodes, new Random(versionCodeCount));
+		currentVersionCode = versionCodeCount / 2;
+	}
+
+	@Benchmark
+	public List<Integer> getHigherVersionCodes() {
+		return TrackUpdatePlan.getHigherVersionCodes(currentVersionCode, versionCodes);
+	}
+
+	@Benchmark
+	public List<Integer> getLowerVersionCodes() {
+		return TrackUpdatePlan.getLowerVersionCodes(currentVersionCode, versionCodes);
+	}
+}
@@ -0,0 +1,407 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.androidpublisher.model.Apk;
+import com.google.api.services.androidpublisher.model.ApkBinary;
+import com.google.api.services.androidpublisher.model.ApkListing;
+import com.google.api.services.androidpublisher.model.ApksListResponse;
+import com.google.api.services.androidpublisher.model.AppEdit;
+import com.google.api.services.androidpublisher.model.Track;
+import com.google.api.services.androidpublisher.model.TracksListResponse;
+import hudson.Util;
+import net.erdfelt.android.apk.AndroidApk;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+public class FakeAndroidPublisher extends MockHttpTransport {
+	private static final String API_PATH = "/androidpublisher/v2/applications/";
+	private static final String UPLOAD_PATH = "/upload/androidpublisher/v2/applications/";
+	private static final String SESSION_PATH = "/upload/session/";
+	private static final String SESSION_URL = "https://www.googleapis.com" + SESSION_PATH;
+	private static final String COMMIT_SUFFIX = ":commit";
+	private static final long EDIT_VALIDITY_SECONDS = TimeUnit.HOURS.toSeconds(1);
+	private static final int STATUS_CODE_RESUME_INCOMPLETE = 308;
+	private final JsonFactory jsonFactory = new JacksonFactory();
+	private final Random random = new Random();
+	private final AtomicLong nextId = new AtomicLong();
+	private final Map<String, PackageState> packages = new HashMap<String, PackageState>();
+	private final Map<String, EditState> edits = new HashMap<String, EditState>();
+	private final Map<String, UploadSession> uploadSessions = new HashMap<String, UploadSession>();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong throttledCount = new AtomicLong();
+	private final AtomicLong serverErrorCount = new AtomicLong();
+	private final AtomicLong conflictCount = new AtomicLong();
+	private final AtomicLong uploadedBytes = new AtomicLong();
+	private volatile long latencyMillis;
+	private volatile long uploadBytesPerSecond;
+	private volatile double throttleRate;
+	private volatile double serverErrorRate;
+	private volatile double conflictRate;
+
+	public FakeAndroidPublisher setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+		return this;
+	}
+
+	public FakeAndroidPublisher setUploadBytesPerSecond(long uploadBytesPerSecond) {
+		this.uploadBytesPerSecond = uploadBytesPerSecond;
+		return this;
+	}
+
+	public FakeAndroidPublisher setThrottleRate(double throttleRate) {
+		this.throttleRate = throttleRate;
+		return this;
+	}
+
+	public FakeAndroidPublisher setServerErrorRate(double serverErrorRate) {
+		this.serverErrorRate = serverErrorRate;
+		return this;
+	}
+
+	public FakeAndroidPublisher setConflictRate(double conflictRate) {
+		this.conflictRate = conflictRate;
+		return this;
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	public long getThrottledCount() {
+		return throttledCount.get();
+	}
+
+	public long getServerErrorCount() {
+		return serverErrorCount.get();
+	}
+
+	public long getConflictCount() {
+		return conflictCount.get();
+	}
+
+	public long getUploadedBytes() {
+		return uploadedBytes.get();
+	}
+
+	@Override
+	public LowLevelHttpRequest buildRequest(final String method, final String url) {
+		return new MockLowLevelHttpRequest(url) {
+			@Override
+			public LowLevelHttpResponse execute() throws IOException {
+				return handle(method, url, this);
+			}
+		};
+	}
+
+	private LowLevelHttpResponse handle(String method, String url, MockLowLevelHttpRequest request)
+			throws IOException {
+		requestCount.incrementAndGet();
+		sleep(latencyMillis);
+		if (chance(throttleRate)) {
+			throttledCount.incrementAndGet();
+			return error(429, "rateLimitExceeded", "Rate limit exceeded").addHeader("Retry-After", "1");
+		}
+		if (chance(serverErrorRate)) {
+			serverErrorCount.incrementAndGet();
+			return error(503, "backendError", "Backend Error");
+		}
+		String path = new GenericUrl(url).getRawPath();
+		byte[] content = getContent(request);
+		try {
+			if (path.startsWith(SESSION_PATH)) {
+				return uploadChunk(path.substring(SESSION_PATH.length()), request, content);
+			}
+			if (path.startsWith(UPLOAD_PATH)) {
+				return startUpload(path.substring(UPLOAD_PATH.length()).split("/"));
+			}
+			if (path.startsWith(API_PATH)) {
+				return route(method, path, path.substring(API_PATH.length()).split("/"), content);
+			}
+			throw new FakeException(501, "notImplemented",
+					String.format("%s %s is not supported by the fake Android Publisher", method, path));
+		} catch (FakeException e) {
+			return error(e.statusCode, e.reason, e.getMessage());
+		}
+	}
+
+	private LowLevelHttpResponse route(String method, String path, String[] segments, byte[] content)
+			throws IOException, FakeException {
+		String packageName = segments[0];
+		if (segments.length == 2 && "POST".equals(method)) {
+			return insertEdit(packageName);
+		}
+		if (segments.length == 3 && segments[2].endsWith(COMMIT_SUFFIX) && "POST".equals(method)) {
+			return commitEdit(packageName,
+					segments[2].substring(0, segments[2].length() - COMMIT_SUFFIX.length()));
+		}
+		EditState edit = getEdit(packageName, segments.length > 2 ? segments[2] : null);
+		synchronized (this) {
+			if (segments.length == 3 && "GET".equals(method)) {
+				return json(edit.toAppEdit());
+			}
+			if (segments.length == 3 && "DELETE".equals(method)) {
+				edits.remove(edit.id);
+				return new MockLowLevelHttpResponse().setStatusCode(204);
+			}
+			if (segments.length == 4 && "apks".equals(segments[3]) && "GET".equals(method)) {
+				return json(new ApksListResponse().setApks(new ArrayList<Apk>(edit.apks.values())));
+			}
+			if (segments.length == 4 && "tracks".equals(segments[3]) && "GET".equals(method)) {
+				return json(new TracksListResponse().setTracks(new ArrayList<Track>(edit.tracks.values())));
+			}
+			if (segments.length == 5 && "tracks".equals(segments[3])) {
+				Track track = parse(content, Track.class).setTrack(segments[4]);
+				if (track.getVersionCodes() != null) {
+					for (Integer i : track.getVersionCodes()) {
+						edit.getApk(i);
+					}
+				}
+				edit.tracks.put(segments[4], track);
+				return json(track);
+			}
+			if (segments.length == 7 && "listings".equals(segments[5])) {
+				edit.getApk(Integer.valueOf(segments[4]));
+				ApkListing listing = parse(content, ApkListing.class).setLanguage(segments[6]);
+				edit.listings.put(segments[4] + "/" + segments[6], listing);
+				return json(listing);
+			}
+		}
+		throw new FakeException(501, "notImplemented",
+				String.format("%s %s is not supported by the fake Android Publisher", method, path));
+	}
+
+	private synchronized LowLevelHttpResponse insertEdit(String packageName) throws IOException {
+		PackageState packageState = getPackage(packageName);
+		EditState edit = new EditState(Long.toString(nextId.incrementAndGet()), packageName,
+				packageState.generation);
+		edit.apks.putAll(packageState.apks);
+		edit.tracks.putAll(packageState.tracks);
+		edits.put(edit.id, edit);
+		return json(edit.toAppEdit());
+	}
+
+	private synchronized LowLevelHttpResponse commitEdit(String packageName, String editId)
+			throws IOException, FakeException {
+		EditState edit = getEdit(packageName, editId);
+		if (chance(conflictRate)) {
+			conflictCount.incrementAndGet();
+			throw new FakeException(409, "conflict", "The edit conflicts with another change");
+		}
+		PackageState packageState = getPackage(packageName);
+		packageState.apks.clear();
+		packageState.apks.putAll(edit.apks);
+		packageState.tracks.clear();
+		packageState.tracks.putAll(edit.tracks);
+		packageState.generation++;
+		edits.remove(editId);
+		return json(edit.toAppEdit());
+	}
+
+	private synchronized LowLevelHttpResponse startUpload(String[] segments) throws FakeException {
+		EditState edit = getEdit(segments[0], segments.length > 2 ? segments[2] : null);
+		String sessionId = Long.toString(nextId.incrementAndGet());
+		uploadSessions.put(sessionId, new UploadSession(edit));
+		return new MockLowLevelHttpResponse().setStatusCode(200).addHeader("Location", SESSION_URL + sessionId);
+	}
+
+	private LowLevelHttpResponse uploadChunk(String sessionId, MockLowLevelHttpRequest request, byte[] content)
+			throws IOException, FakeException {
+		final UploadSession session;
+		synchronized (this) {
+			session = uploadSessions.get(sessionId);
+		}
+		if (session == null) {
+			throw new FakeException(404, "notFound", "Upload session not found");
+		}
+		if (uploadBytesPerSecond > 0) {
+			sleep(content.length * 1000L / uploadBytesPerSecond);
+		}
+		uploadedBytes.addAndGet(content.length);
+		String contentRange = request.getFirstHeaderValue("Content-Range");
+		long total = contentRange == null ? content.length
+				: Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+		synchronized (session) {
+			session.content.write(content);
+			if (session.content.size() < total) {
+				return new MockLowLevelHttpResponse().setStatusCode(STATUS_CODE_RESUME_INCOMPLETE)
+						.addHeader("Range", String.format("bytes=0-%d", session.content.size() - 1));
+			}
+		}
+		byte[] apkContent = session.content.toByteArray();
+		int versionCode = Integer.parseInt(
+				new AndroidApk(new ByteArrayInputStream(apkContent)).getAppVersionCode());
+		synchronized (this) {
+			uploadSessions.remove(sessionId);
+			EditState edit = getEdit(session.edit.packageName, session.edit.id);
+			PackageState packageState = getPackage(edit.packageName);
+			if (edit.apks.containsKey(versionCode) || packageState.apks.containsKey(versionCode)) {
+				throw new FakeException(403, "apkUpgradeVersionConflict",
+						String.format("APK specifies a version code that has already been used: %d", versionCode));
+			}
+			Apk apk = new Apk().setVersionCode(versionCode)
+					.setBinary(new ApkBinary().setSha1(sha1(apkContent)));
+			edit.apks.put(versionCode, apk);
+			return json(apk);
+		}
+	}
+
+	private synchronized PackageState getPackage(String packageName) {
+		PackageState packageState = packages.get(packageName);
+		if (packageState == null) {
+			packageState = new PackageState();
+			packages.put(packageName, packageState);
+		}
+		return packageState;
+	}
+
+	private synchronized EditState getEdit(String packageName, String editId) throws FakeException {
+		EditState edit = editId == null ? null : edits.get(editId);
+		if (edit == null || !edit.packageName.equals(packageName)) {
+			throw new FakeException(404, "notFound", String.format("Edit '%s' not found", editId));
+		}
+		if (edit.generation != getPackage(packageName).generation) {
+			edits.remove(editId);
+			throw new FakeException(400, "editDeleted", "This Edit has been deleted.");
+		}
+		return edit;
+	}
+
+	private byte[] getContent(MockLowLevelHttpRequest request) throws IOException {
+		if (request.getStreamingContent() == null) {
+			return new byte[0];
+		}
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		request.getStreamingContent().writeTo(outputStream);
+		if ("gzip".equals(request.getContentEncoding())) {
+			return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+		}
+		return outputStream.toByteArray();
+	}
+
+	private <T> T parse(byte[] content, Class<T> type) throws IOException {
+		return jsonFactory.fromString(new String(content, "UTF-8"), type);
+	}
+
+	private MockLowLevelHttpResponse json(Object content) throws IOException {
+		return new MockLowLevelHttpResponse().setStatusCode(200).setContentType(Json.MEDIA_TYPE)
+				.setContent(jsonFactory.toString(content));
+	}
+
+	private MockLowLevelHttpResponse error(int statusCode, String reason, String message) throws IOException {
+		GoogleJsonError.ErrorInfo errorInfo = new GoogleJsonError.ErrorInfo();
+		errorInfo.setDomain("global");
+		errorInfo.setReason(reason);
+		errorInfo.setMessage(message);
+		GoogleJsonError error = new GoogleJsonError();
+		error.setCode(statusCode);
+		error.setMessage(message);
+		error.setErrors(Collections.singletonList(errorInfo));
+		return new MockLowLevelHttpResponse().setStatusCode(statusCode).setContentType(Json.MEDIA_TYPE)
+				.setContent(jsonFactory.toString(new GenericJson().set("error", error)));
+	}
+
+	private boolean chance(double rate) {
+		synchronized (random) {
+			return rate > 0 && random.nextDouble() < rate;
+		}
+	}
+
+	private static void sleep(long millis) throws InterruptedIOException {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while simulating latency");
+		}
+	}
+
+	private static String sha1(byte[] content) {
+		try {
+			return Util.toHexString(MessageDigest.getInstance("SHA-1").digest(content));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class PackageState {
+		private final Map<Integer, Apk> apks = new HashMap<Integer, Apk>();
+		private final Map<String, Track> tracks = new HashMap<String, Track>();
+		private int generation;
+	}
+
+	private static class EditState {
+		private final String id;
+		private final String packageName;
+		private final int generation;
+		private final long expiryTimeSeconds =
+				TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + EDIT_VALIDITY_SECONDS;
+		private final Map<Integer, Apk> apks = new HashMap<Integer, Apk>();
+		private final Map<String, Track> tracks = new HashMap<String, Track>();
+		private final Map<String, ApkListing> listings = new HashMap<String, ApkListing>();
+
+		private EditState(String id, String packageName, int generation) {
+			this.id = id;
+			this.packageName = packageName;
+			this.generation = generation;
+		}
+
+		private Apk getApk(Integer versionCode) throws FakeException {
+			Apk apk = apks.get(versionCode);
+			if (apk == null) {
+				throw new FakeException(404, "apkNotFound", String.format("APK %d not found", versionCode));
+			}
+			return apk;
+		}
+
+		private AppEdit toAppEdit() {
+			return new AppEdit().setId(id).setExpiryTimeSeconds(Long.toString(expiryTimeSeconds));
+		}
+	}
+
+	private static class UploadSession {
+		private final EditState edit;
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		private UploadSession(EditState edit) {
+			this.edit = edit;
+		}
+	}
+
+	private static class FakeException extends Exception {
+		private final int statusCode;
+		private final String reason;
+
+		private FakeException(int statusCode, String reason, String message) {
+			super(message);
+			this.statusCode = statusCode;
+			this.reason = reason;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.jenkins.plugins.credentials.oauth.GoogleOAuth2ScopeRequirement;
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentialsModule;
+
+import java.util.concurrent.TimeUnit;
+
+public class FakeRobotCredentials extends GoogleRobotCredentials {
+	private static final String TOKEN_SERVER_URL = "https://accounts.google.com/o/oauth2/token";
+	private final HttpTransport httpTransport;
+
+	public FakeRobotCredentials(String projectId, HttpTransport httpTransport) {
+		super(projectId, new GoogleRobotCredentialsModule());
+		this.httpTransport = httpTransport;
+	}
+
+	@Override
+	public Credential getGoogleCredential(GoogleOAuth2ScopeRequirement requirement) {
+		return new Credential.Builder(BearerToken.authorizationHeaderAccessMethod())
+				.setTransport(httpTransport)
+				.setJsonFactory(new JacksonFactory())
+				.setTokenServerEncodedUrl(TOKEN_SERVER_URL)
+				.build()
+				.setAccessToken("fake-access-token")
+				.setExpiresInSeconds(TimeUnit.HOURS.toSeconds(1));
+	}
+
+	@Override
+	public String getUsername() {
+		return getProjectId();
+	}
+}
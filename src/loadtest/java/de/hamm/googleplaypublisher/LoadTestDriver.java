@@ -0,0 +1,165 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import org.apache.commons.io.output.NullOutputStream;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LoadTestDriver {
+	private static final String PROPERTY_PREFIX = "loadtest.";
+	private final int sessions = Integer.getInteger(PROPERTY_PREFIX + "sessions", 8);
+	private final int iterations = Integer.getInteger(PROPERTY_PREFIX + "iterations", 5);
+	private final int packageCount = Integer.getInteger(PROPERTY_PREFIX + "packages", sessions);
+	private final int apkSizeInMegabytes = Integer.getInteger(PROPERTY_PREFIX + "apkSizeInMegabytes", 5);
+	private final int chunkSizeInMegabytes = Integer.getInteger(PROPERTY_PREFIX + "chunkSizeInMegabytes", 0);
+	private final boolean verbose = Boolean.getBoolean(PROPERTY_PREFIX + "verbose");
+	private final FakeAndroidPublisher fakeAndroidPublisher = new FakeAndroidPublisher()
+			.setLatencyMillis(Long.getLong(PROPERTY_PREFIX + "latencyMillis", 50))
+			.setUploadBytesPerSecond(Long.getLong(PROPERTY_PREFIX + "uploadBytesPerSecond", 20L * 1024 * 1024))
+			.setThrottleRate(getDouble(PROPERTY_PREFIX + "throttleRate"))
+			.setServerErrorRate(getDouble(PROPERTY_PREFIX + "serverErrorRate"))
+			.setConflictRate(getDouble(PROPERTY_PREFIX + "conflictRate"));
+	private final FakeRobotCredentials credentials = new FakeRobotCredentials("load-test", fakeAndroidPublisher);
+	private final Map<String, List<Long>> latencies = new LinkedHashMap<String, List<Long>>();
+	private final Map<String, Integer> failures = new LinkedHashMap<String, Integer>();
+
+	public static void main(String[] args) throws Exception {
+		new LoadTestDriver().run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		AndroidPublisherClientCache.getInstance().setHttpTransport(fakeAndroidPublisher);
+		ExecutorService executor = Executors.newFixedThreadPool(sessions, new NamedThreadFactory("Load test session"));
+		long startNanos = System.nanoTime();
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < sessions; i++) {
+				final String packageName = String.format("de.hamm.loadtest.app%d", i % packageCount);
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						for (int j = 0; j < iterations; j++) {
+							runSession(packageName);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> i : futures) {
+				i.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+	}
+
+	private void runSession(String packageName) throws Exception {
+		PrintStream logger = verbose ? System.out : new PrintStream(new NullOutputStream());
+		long startNanos = System.nanoTime();
+		final int versionCode;
+		try {
+			versionCode = new NextAvailableVersionCodeFetcherHelper.Builder()
+					.setLogger(logger)
+					.setCredentials(credentials)
+					.setPackageName(packageName)
+					.createNextAvailableVersionCodeFetcherHelper()
+					.fetchNextAvailableVersionCode();
+			record("fetch", startNanos, null);
+		} catch (RuntimeException e) {
+			record("fetch", startNanos, e);
+			return;
+		}
+		File apkFile = ApkFixtures.createApk(packageName, versionCode, apkSizeInMegabytes, true);
+		EnvVars envVars = new EnvVars("BUILD_NUMBER", Integer.toString(versionCode));
+		startNanos = System.nanoTime();
+		try {
+			new PublishHelper.Builder()
+					.setLogger(logger)
+					.setCredentials(credentials)
+					.setApkFilePath(new FilePath(apkFile))
+					.setTrack(new AlphaTrack())
+					.setReleaseNotes(Collections.singletonList(
+							new ReleaseNotes("en-US", "Load test build ${BUILD_NUMBER}")))
+					.setEnvVars(envVars)
+					.setResumableUpload(chunkSizeInMegabytes > 0
+							? new GooglePlayPublisher.ResumableUpload(chunkSizeInMegabytes) : null)
+					.createPublishHelper()
+					.publish();
+			record("publish", startNanos, null);
+		} catch (RuntimeException e) {
+			record("publish", startNanos, e);
+		} finally {
+			apkFile.delete();
+		}
+	}
+
+	private synchronized void record(String operation, long startNanos, Exception failure) {
+		List<Long> operationLatencies = latencies.get(operation);
+		if (operationLatencies == null) {
+			operationLatencies = new ArrayList<Long>();
+			latencies.put(operation, operationLatencies);
+		}
+		if (failure != null) {
+			Integer count = failures.get(operation);
+			failures.put(operation, count == null ? 1 : count + 1);
+			if (verbose) {
+				failure.printStackTrace();
+			}
+			return;
+		}
+		operationLatencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+	}
+
+	private synchronized void report(long durationMillis) {
+		System.out.println(String.format("%d sessions x %d iterations on %d packages in %d ms", sessions, iterations,
+				packageCount, durationMillis));
+		for (Map.Entry<String, List<Long>> i : latencies.entrySet()) {
+			List<Long> values = i.getValue();
+			Collections.sort(values);
+			Integer failureCount = failures.get(i.getKey());
+			if (values.isEmpty()) {
+				System.out.println(String.format("%-8s %6d ok %4d failed", i.getKey(), 0, failureCount));
+				continue;
+			}
+			System.out.println(String.format(
+					"%-8s %6d ok %4d failed %8.2f/s  p50 %6d ms  p90 %6d ms  p99 %6d ms  max %6d ms",
+					i.getKey(), values.size(), failureCount == null ? 0 : failureCount,
+					values.size() * 1000.0 / durationMillis, percentile(values, 50), percentile(values, 90),
+					percentile(values, 99), values.get(values.size() - 1)));
+		}
+		System.out.println(String.format(
+				"Fake Android Publisher: %d requests, %d throttled, %d server errors, %d conflicts, %d bytes uploaded",
+				fakeAndroidPublisher.getRequestCount(), fakeAndroidPublisher.getThrottledCount(),
+				fakeAndroidPublisher.getServerErrorCount(), fakeAndroidPublisher.getConflictCount(),
+				fakeAndroidPublisher.getUploadedBytes()));
+		ApiMetrics metrics = ApiMetrics.getInstance();
+		System.out.println(String.format("Client: %d requests, %d failed, %d retries, %d throttled",
+				metrics.getRequestCount(), metrics.getFailureCount(), metrics.getRetryCount(),
+				metrics.getThrottleCount()));
+		for (String i : metrics.getLatencyHistograms()) {
+			System.out.println("  " + i);
+		}
+	}
+
+	private static long percentile(List<Long> sortedValues, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+		return sortedValues.get(Math.max(index, 0));
+	}
+
+	private static double getDouble(String name) {
+		return Double.parseDouble(System.getProperty(name, "0"));
+	}
+}
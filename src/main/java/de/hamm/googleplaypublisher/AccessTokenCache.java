@@ -0,0 +1,184 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.jenkins.plugins.credentials.oauth.GoogleOAuth2ScopeRequirement;
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AccessTokenCache {
+	private static final Log LOG = LogFactory.getLog(AccessTokenCache.class);
+	// Tokens are refreshed in the background before they drop below this validity, so callers that need a token
+	// for a long upload find one in the cache
+	public static final long BACKGROUND_REFRESH_MIN_VALIDITY_SECONDS = TimeUnit.MINUTES.toSeconds(30);
+	private static final long REFRESH_MARGIN_SECONDS =
+			BACKGROUND_REFRESH_MIN_VALIDITY_SECONDS + TimeUnit.MINUTES.toSeconds(5);
+	private static final long MIN_REFRESH_DELAY_SECONDS = 30;
+	private static final long MIN_VALIDITY_SECONDS = 60;
+	private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private static final AccessTokenCache INSTANCE = new AccessTokenCache();
+	private final ScheduledExecutorService refreshExecutor =
+			Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Google play Publisher token refresh"));
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong refreshCount = new AtomicLong();
+	private final AtomicLong refreshFailureCount = new AtomicLong();
+
+	private AccessTokenCache() {
+	}
+
+	public static AccessTokenCache getInstance() {
+		return INSTANCE;
+	}
+
+	public Credential getCredential(GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement)
+			throws GeneralSecurityException, IOException {
+		return getEntry(credentials, requirement).getCredential(MIN_VALIDITY_SECONDS);
+	}
+
+	public String getAccessToken(GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement,
+								 long minValiditySeconds) throws GeneralSecurityException, IOException {
+		return getEntry(credentials, requirement).getCredential(minValiditySeconds).getAccessToken();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	public long getRefreshFailureCount() {
+		return refreshFailureCount.get();
+	}
+
+	private synchronized Entry getEntry(GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement) {
+		String key = createKey(credentials.getId(), requirement);
+		Entry entry = entries.get(key);
+		if (entry == null || entry.credentials != credentials) {
+			if (entry != null) {
+				entry.cancelRefresh();
+			}
+			entry = new Entry(key, credentials, requirement);
+			entries.put(key, entry);
+		}
+		return entry;
+	}
+
+	private synchronized void remove(Entry entry) {
+		if (entries.get(entry.key) == entry) {
+			entries.remove(entry.key);
+		}
+	}
+
+	private static String createKey(String credentialId, GoogleOAuth2ScopeRequirement requirement) {
+		List<String> scopes = new ArrayList<String>(requirement.getScopes());
+		Collections.sort(scopes);
+		StringBuilder key = new StringBuilder(credentialId);
+		for (String i : scopes) {
+			key.append(' ').append(i);
+		}
+		return key.toString();
+	}
+
+	private class Entry implements Runnable {
+		private final String key;
+		private final GoogleRobotCredentials credentials;
+		private final GoogleOAuth2ScopeRequirement requirement;
+		private Credential credential;
+		private ScheduledFuture<?> scheduledRefresh;
+		private volatile long lastAccess;
+
+		private Entry(String key, GoogleRobotCredentials credentials, GoogleOAuth2ScopeRequirement requirement) {
+			this.key = key;
+			this.credentials = credentials;
+			this.requirement = requirement;
+		}
+
+		private synchronized Credential getCredential(long minValiditySeconds)
+				throws GeneralSecurityException, IOException {
+			lastAccess = System.currentTimeMillis();
+			if (credential != null && isValid(credential.getExpiresInSeconds(), minValiditySeconds)) {
+				hitCount.incrementAndGet();
+				return credential;
+			}
+			missCount.incrementAndGet();
+			if (credential == null) {
+				credential = credentials.getGoogleCredential(requirement);
+			}
+			refresh();
+			return credential;
+		}
+
+		public void run() {
+			if (System.currentTimeMillis() - lastAccess > IDLE_TIMEOUT_MILLIS) {
+				remove(this);
+				return;
+			}
+			synchronized (this) {
+				try {
+					refresh();
+				} catch (IOException e) {
+					LOG.warn(String.format("Failed to refresh access token for '%s'", credentials.getId()), e);
+					scheduleRefresh(MIN_REFRESH_DELAY_SECONDS);
+				}
+			}
+		}
+
+		private void refresh() throws IOException {
+			boolean refreshed;
+			try {
+				refreshed = credential.refreshToken();
+			} catch (IOException e) {
+				refreshFailureCount.incrementAndGet();
+				throw e;
+			}
+			if (!refreshed) {
+				// Credential.refreshToken() returns false instead of throwing for server errors
+				refreshFailureCount.incrementAndGet();
+				throw new IOException(String.format("Failed to refresh access token for '%s'", credentials.getId()));
+			}
+			refreshCount.incrementAndGet();
+			Long expiresInSeconds = credential.getExpiresInSeconds();
+			if (expiresInSeconds != null) {
+				scheduleRefresh(Math.max(expiresInSeconds - REFRESH_MARGIN_SECONDS, MIN_REFRESH_DELAY_SECONDS));
+			}
+		}
+
+		private void scheduleRefresh(long delaySeconds) {
+			cancelRefresh();
+			scheduledRefresh = refreshExecutor.schedule(this, delaySeconds, TimeUnit.SECONDS);
+		}
+
+		private synchronized void cancelRefresh() {
+			if (scheduledRefresh != null) {
+				scheduledRefresh.cancel(false);
+				scheduledRefresh = null;
+			}
+		}
+
+		private boolean isValid(Long expiresInSeconds, long minValiditySeconds) {
+			return credential.getAccessToken() != null
+					&& (expiresInSeconds == null || expiresInSeconds > minValiditySeconds);
+		}
+	}
+}
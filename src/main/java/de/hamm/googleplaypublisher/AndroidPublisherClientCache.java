@@ -0,0 +1,99 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class AndroidPublisherClientCache {
+	private static final String APPLICATION_NAME = "de.hamm.googleplaypublisher";
+	private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	private static final AndroidPublisherClientCache INSTANCE = new AndroidPublisherClientCache();
+	private final JsonFactory jsonFactory = new JacksonFactory();
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private HttpTransport httpTransport;
+
+	private AndroidPublisherClientCache() {
+	}
+
+	public static AndroidPublisherClientCache getInstance() {
+		return INSTANCE;
+	}
+
+	public AndroidPublisher getAndroidPublisher(GoogleRobotCredentials credentials)
+			throws GeneralSecurityException, IOException {
+		final Credential credential =
+				AccessTokenCache.getInstance().getCredential(credentials, new AndroidPublisherScopeRequirement());
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			evictIdleEntries(now);
+			Entry entry = entries.get(credentials.getId());
+			if (entry == null || entry.credentials != credentials || entry.credential != credential) {
+				AndroidPublisher androidPublisher =
+						new AndroidPublisher.Builder(getHttpTransport(), jsonFactory, credential)
+								.setApplicationName(APPLICATION_NAME)
+								.build();
+				entry = new Entry(credentials, credential, androidPublisher);
+				entries.put(credentials.getId(), entry);
+			}
+			entry.lastAccess = now;
+			return entry.androidPublisher;
+		}
+	}
+
+	public AndroidPublisher createResumableUploadClient(GoogleRobotCredentials credentials, int maxResumeAttempts)
+			throws GeneralSecurityException, IOException {
+		final Credential credential =
+				AccessTokenCache.getInstance().getCredential(credentials, new AndroidPublisherScopeRequirement());
+		synchronized (this) {
+			return new AndroidPublisher.Builder(getHttpTransport(), jsonFactory,
+					new ResumableUploadRequestInitializer(credential, maxResumeAttempts))
+					.setApplicationName(APPLICATION_NAME)
+					.build();
+		}
+	}
+
+	// Only used by the load test to route all clients to its in-process fake of the Google Play API
+	synchronized void setHttpTransport(HttpTransport httpTransport) {
+		this.httpTransport = httpTransport;
+		entries.clear();
+	}
+
+	private HttpTransport getHttpTransport() throws GeneralSecurityException, IOException {
+		if (httpTransport == null) {
+			httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+		}
+		return httpTransport;
+	}
+
+	private void evictIdleEntries(long now) {
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext(); ) {
+			if (now - i.next().lastAccess > IDLE_TIMEOUT_MILLIS) {
+				i.remove();
+			}
+		}
+	}
+
+	private static class Entry {
+		private final GoogleRobotCredentials credentials;
+		private final Credential credential;
+		private final AndroidPublisher androidPublisher;
+		private long lastAccess;
+
+		private Entry(GoogleRobotCredentials credentials, Credential credential, AndroidPublisher androidPublisher) {
+			this.credentials = credentials;
+			this.credential = credential;
+			this.androidPublisher = androidPublisher;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ApiCallStatistics implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final Map<String, Operation> operations = new TreeMap<String, Operation>();
+	private long uploadedBytes;
+	private long uploadMillis;
+
+	public synchronized void record(String operationName, long durationMillis, boolean success) {
+		Operation operation = operations.get(operationName);
+		if (operation == null) {
+			operation = new Operation(operationName);
+			operations.put(operationName, operation);
+		}
+		operation.count++;
+		if (!success) {
+			operation.failureCount++;
+		}
+		operation.totalMillis += durationMillis;
+		operation.maxMillis = Math.max(operation.maxMillis, durationMillis);
+	}
+
+	public synchronized void recordUpload(long bytes, long durationMillis) {
+		uploadedBytes += bytes;
+		uploadMillis += durationMillis;
+	}
+
+	public synchronized List<Operation> getOperations() {
+		List<Operation> copy = new ArrayList<Operation>();
+		for (Operation i : operations.values()) {
+			copy.add(i.copy());
+		}
+		return copy;
+	}
+
+	public synchronized boolean isEmpty() {
+		return operations.isEmpty() && uploadedBytes == 0;
+	}
+
+	public synchronized long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	public synchronized long getUploadMillis() {
+		return uploadMillis;
+	}
+
+	public synchronized long getUploadBytesPerSecond() {
+		return uploadMillis == 0 ? 0 : uploadedBytes * 1000 / uploadMillis;
+	}
+
+	public synchronized ApiCallStatistics copy() {
+		ApiCallStatistics copy = new ApiCallStatistics();
+		for (Operation i : operations.values()) {
+			copy.operations.put(i.name, i.copy());
+		}
+		copy.uploadedBytes = uploadedBytes;
+		copy.uploadMillis = uploadMillis;
+		return copy;
+	}
+
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder("API call timings:");
+		for (Operation i : getOperations()) {
+			summary.append(String.format("%n  %s: %d calls, %d failed, avg %d ms, max %d ms", i.getName(),
+					i.getCount(), i.getFailureCount(), i.getAverageMillis(), i.getMaxMillis()));
+		}
+		if (getUploadedBytes() > 0) {
+			summary.append(String.format("%n  Uploaded %d bytes in %d ms (%d bytes/s)", getUploadedBytes(),
+					getUploadMillis(), getUploadBytesPerSecond()));
+		}
+		return summary.toString();
+	}
+
+	public static class Operation implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final String name;
+		private int count;
+		private int failureCount;
+		private long totalMillis;
+		private long maxMillis;
+
+		private Operation(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public int getFailureCount() {
+			return failureCount;
+		}
+
+		public long getTotalMillis() {
+			return totalMillis;
+		}
+
+		public long getAverageMillis() {
+			return count == 0 ? 0 : totalMillis / count;
+		}
+
+		public long getMaxMillis() {
+			return maxMillis;
+		}
+
+		private Operation copy() {
+			Operation copy = new Operation(name);
+			copy.count = count;
+			copy.failureCount = failureCount;
+			copy.totalMillis = totalMillis;
+			copy.maxMillis = maxMillis;
+			return copy;
+		}
+	}
+}
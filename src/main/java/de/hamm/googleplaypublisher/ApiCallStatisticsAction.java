@@ -0,0 +1,29 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.model.Action;
+
+public class ApiCallStatisticsAction implements Action {
+	private final String title;
+	private final ApiCallStatistics statistics;
+
+	public ApiCallStatisticsAction(String title, ApiCallStatistics statistics) {
+		this.title = title;
+		this.statistics = statistics;
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return title;
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+
+	public ApiCallStatistics getStatistics() {
+		return statistics;
+	}
+}
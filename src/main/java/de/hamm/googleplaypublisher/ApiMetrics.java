@@ -0,0 +1,171 @@
+package de.hamm.googleplaypublisher;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ApiMetrics implements ApiMetricsMBean {
+	private static final Log LOG = LogFactory.getLog(ApiMetrics.class);
+	private static final String OBJECT_NAME = "de.hamm.googleplaypublisher:type=ApiMetrics";
+	private static final long[] BUCKET_BOUNDS_MILLIS = {100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+	private static final ApiMetrics INSTANCE = new ApiMetrics();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong throttleCount = new AtomicLong();
+	private final AtomicLong uploadCount = new AtomicLong();
+	private final AtomicLong uploadedBytes = new AtomicLong();
+	private final Map<String, long[]> histograms = new TreeMap<String, long[]>();
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			LOG.warn(String.format("Failed to register MBean '%s'", OBJECT_NAME), e);
+		}
+	}
+
+	private ApiMetrics() {
+	}
+
+	public static ApiMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	public void record(String operationName, long durationMillis, boolean success) {
+		requestCount.incrementAndGet();
+		if (!success) {
+			failureCount.incrementAndGet();
+		}
+		int bucket = 0;
+		while (bucket < BUCKET_BOUNDS_MILLIS.length && durationMillis > BUCKET_BOUNDS_MILLIS[bucket]) {
+			bucket++;
+		}
+		synchronized (histograms) {
+			long[] histogram = histograms.get(operationName);
+			if (histogram == null) {
+				histogram = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+				histograms.put(operationName, histogram);
+			}
+			histogram[bucket]++;
+		}
+	}
+
+	public void recordRetry() {
+		retryCount.incrementAndGet();
+	}
+
+	public void recordThrottle() {
+		throttleCount.incrementAndGet();
+	}
+
+	public void recordUpload(long bytes) {
+		uploadCount.incrementAndGet();
+		uploadedBytes.addAndGet(bytes);
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	public long getThrottleCount() {
+		return throttleCount.get();
+	}
+
+	public long getUploadCount() {
+		return uploadCount.get();
+	}
+
+	public long getUploadedBytes() {
+		return uploadedBytes.get();
+	}
+
+	public String[] getLatencyHistograms() {
+		synchronized (histograms) {
+			String[] lines = new String[histograms.size()];
+			int index = 0;
+			for (Map.Entry<String, long[]> i : histograms.entrySet()) {
+				StringBuilder line = new StringBuilder(i.getKey()).append(':');
+				for (int j = 0; j < i.getValue().length; j++) {
+					line.append(j < BUCKET_BOUNDS_MILLIS.length
+							? String.format(" <=%dms=%d", BUCKET_BOUNDS_MILLIS[j], i.getValue()[j])
+							: String.format(" >%dms=%d", BUCKET_BOUNDS_MILLIS[j - 1], i.getValue()[j]));
+				}
+				lines[index++] = line.toString();
+			}
+			return lines;
+		}
+	}
+
+	public long getAccessTokenHitCount() {
+		return AccessTokenCache.getInstance().getHitCount();
+	}
+
+	public long getAccessTokenMissCount() {
+		return AccessTokenCache.getInstance().getMissCount();
+	}
+
+	public long getAccessTokenRefreshCount() {
+		return AccessTokenCache.getInstance().getRefreshCount();
+	}
+
+	public long getAccessTokenRefreshFailureCount() {
+		return AccessTokenCache.getInstance().getRefreshFailureCount();
+	}
+
+	public int getPublishQueueDepth() {
+		return PublishScheduler.getInstance().getTotalQueueDepth();
+	}
+
+	public String[] getPublishQueueDepths() {
+		Map<String, Integer> queueDepths = PublishScheduler.getInstance().getQueueDepths();
+		String[] lines = new String[queueDepths.size()];
+		int index = 0;
+		for (Map.Entry<String, Integer> i : queueDepths.entrySet()) {
+			lines[index++] = String.format("%s: %d", i.getKey(), i.getValue());
+		}
+		return lines;
+	}
+
+	public long getPublishCount() {
+		return PublishScheduler.getInstance().getPublishCount();
+	}
+
+	public long getSupersededPublishCount() {
+		return PublishScheduler.getInstance().getSupersededCount();
+	}
+
+	public long getPublishWaitMillis() {
+		return PublishScheduler.getInstance().getTotalWaitMillis();
+	}
+
+	public long getMaxPublishWaitMillis() {
+		return PublishScheduler.getInstance().getMaxWaitMillis();
+	}
+
+	public void reset() {
+		requestCount.set(0);
+		failureCount.set(0);
+		retryCount.set(0);
+		throttleCount.set(0);
+		uploadCount.set(0);
+		uploadedBytes.set(0);
+		synchronized (histograms) {
+			histograms.clear();
+		}
+	}
+}
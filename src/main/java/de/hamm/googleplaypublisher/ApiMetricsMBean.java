@@ -0,0 +1,39 @@
+package de.hamm.googleplaypublisher;
+
+public interface ApiMetricsMBean {
+	long getRequestCount();
+
+	long getFailureCount();
+
+	long getRetryCount();
+
+	long getThrottleCount();
+
+	long getUploadCount();
+
+	long getUploadedBytes();
+
+	String[] getLatencyHistograms();
+
+	long getAccessTokenHitCount();
+
+	long getAccessTokenMissCount();
+
+	long getAccessTokenRefreshCount();
+
+	long getAccessTokenRefreshFailureCount();
+
+	int getPublishQueueDepth();
+
+	String[] getPublishQueueDepths();
+
+	long getPublishCount();
+
+	long getSupersededPublishCount();
+
+	long getPublishWaitMillis();
+
+	long getMaxPublishWaitMillis();
+
+	void reset();
+}
@@ -0,0 +1,187 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpResponseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ApiRequestExecutor {
+	private static final int MAX_ATTEMPTS = 5;
+	private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(1);
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(32);
+	private static final int STATUS_CODE_TOO_MANY_REQUESTS = 429;
+	private static final int STATUS_CODE_FORBIDDEN = 403;
+	private static final int STATUS_CODE_SERVER_ERROR = 500;
+	private static final List<String> RATE_LIMIT_REASONS = Arrays.asList("rateLimitExceeded", "userRateLimitExceeded");
+	private static final String REQUEST_CLASS_PREFIX = "AndroidPublisher$";
+	private final Random random = new Random();
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger retryCount = new AtomicInteger();
+	private final AtomicInteger throttleCount = new AtomicInteger();
+	private final ApiCallStatistics statistics = new ApiCallStatistics();
+	private final PrintStream logger;
+	private final RateLimiter rateLimiter;
+
+	public ApiRequestExecutor(PrintStream logger, String credentialId) {
+		this.logger = logger;
+		this.rateLimiter = RateLimiter.forAccount(credentialId);
+	}
+
+	public <T> T execute(AbstractGoogleClientRequest<T> request) throws IOException {
+		boolean idempotent = isIdempotent(request.getRequestMethod());
+		for (int attempt = 1; ; attempt++) {
+			acquire(1);
+			try {
+				return executeTimed(request);
+			} catch (HttpResponseException e) {
+				boolean rateLimited = isRateLimited(e);
+				if (!(rateLimited || idempotent && e.getStatusCode() >= STATUS_CODE_SERVER_ERROR)
+						|| attempt >= MAX_ATTEMPTS) {
+					throw e;
+				}
+				long delayMillis = getRetryDelayMillis(e, attempt);
+				if (rateLimited) {
+					throttleCount.incrementAndGet();
+					ApiMetrics.getInstance().recordThrottle();
+					rateLimiter.blockFor(delayMillis);
+				}
+				retry(request, attempt, delayMillis, String.format("HTTP %d", e.getStatusCode()));
+			} catch (IOException e) {
+				if (!idempotent || attempt >= MAX_ATTEMPTS) {
+					throw e;
+				}
+				retry(request, attempt, getBackoffMillis(attempt), e.toString());
+			}
+		}
+	}
+
+	public <T> T executeOnce(AbstractGoogleClientRequest<T> request) throws IOException {
+		acquire(1);
+		return executeTimed(request);
+	}
+
+	public void acquire(int permits) throws InterruptedIOException {
+		requestCount.addAndGet(permits);
+		if (rateLimiter.acquire(permits) > 0) {
+			throttleCount.incrementAndGet();
+			ApiMetrics.getInstance().recordThrottle();
+		}
+	}
+
+	public void record(String operationName, long startNanos, boolean success) {
+		long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		statistics.record(operationName, durationMillis, success);
+		ApiMetrics.getInstance().record(operationName, durationMillis, success);
+	}
+
+	public void recordUpload(long bytes, long startNanos) {
+		statistics.recordUpload(bytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+		ApiMetrics.getInstance().recordUpload(bytes);
+	}
+
+	public ApiCallStatistics getStatistics() {
+		return statistics.copy();
+	}
+
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	public int getRetryCount() {
+		return retryCount.get();
+	}
+
+	public int getThrottleCount() {
+		return throttleCount.get();
+	}
+
+	public String getSummary() {
+		return String.format("%d API requests, %d retries, %d throttled", getRequestCount(), getRetryCount(),
+				getThrottleCount());
+	}
+
+	static String describe(AbstractGoogleClientRequest<?> request) {
+		String name = request.getClass().getName();
+		int index = name.indexOf(REQUEST_CLASS_PREFIX);
+		if (index >= 0) {
+			name = name.substring(index + REQUEST_CLASS_PREFIX.length());
+		}
+		return name.replace('$', '.');
+	}
+
+	private <T> T executeTimed(AbstractGoogleClientRequest<T> request) throws IOException {
+		long startNanos = System.nanoTime();
+		boolean success = false;
+		try {
+			T result = request.execute();
+			success = true;
+			return result;
+		} finally {
+			record(describe(request), startNanos, success);
+		}
+	}
+
+	private void retry(AbstractGoogleClientRequest<?> request, int attempt, long delayMillis, String reason)
+			throws InterruptedIOException {
+		retryCount.incrementAndGet();
+		ApiMetrics.getInstance().recordRetry();
+		logger.println(String.format("Retrying %s in %d ms after %s (attempt %d of %d)", describe(request),
+				delayMillis, reason, attempt + 1, MAX_ATTEMPTS));
+		try {
+			Thread.sleep(delayMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format("Interrupted while retrying %s", describe(request)));
+		}
+	}
+
+	// Bounded by the maximum backoff, as the delay also blocks the rate limiter shared by all builds of the account
+	long getRetryDelayMillis(HttpResponseException e, int attempt) {
+		String retryAfter = e.getHeaders() == null ? null : e.getHeaders().getFirstHeaderStringValue("Retry-After");
+		if (retryAfter != null) {
+			try {
+				long retryAfterMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+				return Math.max(0, Math.min(MAX_BACKOFF_MILLIS, retryAfterMillis));
+			} catch (NumberFormatException ignored) {
+				// Retry-After given as HTTP date, fall back to backoff
+			}
+		}
+		return getBackoffMillis(attempt);
+	}
+
+	long getBackoffMillis(int attempt) {
+		long backoffMillis = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (attempt - 1));
+		return backoffMillis / 2 + (long) (random.nextDouble() * backoffMillis / 2);
+	}
+
+	private static boolean isIdempotent(String requestMethod) {
+		return !HttpMethods.POST.equals(requestMethod) && !HttpMethods.PATCH.equals(requestMethod);
+	}
+
+	private static boolean isRateLimited(HttpResponseException e) {
+		if (e.getStatusCode() == STATUS_CODE_TOO_MANY_REQUESTS) {
+			return true;
+		}
+		if (e.getStatusCode() == STATUS_CODE_FORBIDDEN && e instanceof GoogleJsonResponseException) {
+			GoogleJsonError details = ((GoogleJsonResponseException) e).getDetails();
+			if (details != null && details.getErrors() != null) {
+				for (GoogleJsonError.ErrorInfo i : details.getErrors()) {
+					if (RATE_LIMIT_REASONS.contains(i.getReason())) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+}
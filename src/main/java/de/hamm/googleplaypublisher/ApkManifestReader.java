@@ -0,0 +1,290 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public class ApkManifestReader {
+	private static final String MANIFEST_ENTRY_NAME = "AndroidManifest.xml";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+	private static final int MAX_MANIFEST_SIZE = 16 * 1024 * 1024;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	private static final int MAX_ZIP_COMMENT_SIZE = 0xffff;
+	private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+	private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+	private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+	private static final int LOCAL_FILE_HEADER_SIZE = 30;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+	private static final int RES_STRING_POOL_TYPE = 0x0001;
+	private static final int RES_XML_TYPE = 0x0003;
+	private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+	private static final int RES_XML_RESOURCE_MAP_TYPE = 0x0180;
+	private static final int UTF8_FLAG = 1 << 8;
+	private static final int TYPE_REFERENCE = 0x01;
+	private static final int TYPE_STRING = 0x03;
+	private static final int TYPE_INT_DEC = 0x10;
+	private static final int TYPE_INT_HEX = 0x11;
+	private static final int ATTR_MIN_SDK_VERSION = 0x0101020c;
+	private static final int ATTR_VERSION_CODE = 0x0101021b;
+	private static final int ATTR_VERSION_NAME = 0x0101021c;
+
+	private ApkManifestReader() {
+	}
+
+	public static Manifest read(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return parseManifest(readManifestEntry(randomAccessFile.getChannel()));
+		} catch (RuntimeException e) {
+			throw new IOException(String.format("Malformed APK file '%s'", file), e);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static ByteBuffer readManifestEntry(FileChannel channel) throws IOException {
+		ByteBuffer centralDirectory = readCentralDirectory(channel);
+		while (centralDirectory.remaining() >= CENTRAL_DIRECTORY_HEADER_SIZE
+				&& centralDirectory.getInt(centralDirectory.position()) == CENTRAL_DIRECTORY_SIGNATURE) {
+			int header = centralDirectory.position();
+			int nameLength = centralDirectory.getShort(header + 28) & 0xffff;
+			int extraLength = centralDirectory.getShort(header + 30) & 0xffff;
+			int commentLength = centralDirectory.getShort(header + 32) & 0xffff;
+			byte[] name = new byte[nameLength];
+			centralDirectory.position(header + CENTRAL_DIRECTORY_HEADER_SIZE);
+			centralDirectory.get(name);
+			if (MANIFEST_ENTRY_NAME.equals(new String(name, UTF_8))) {
+				return readEntry(channel, centralDirectory.getShort(header + 10) & 0xffff,
+						centralDirectory.getInt(header + 20) & 0xffffffffL,
+						centralDirectory.getInt(header + 24) & 0xffffffffL,
+						centralDirectory.getInt(header + 42) & 0xffffffffL);
+			}
+			centralDirectory.position(header + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength
+					+ commentLength);
+		}
+		throw new IOException(String.format("APK file does not contain %s", MANIFEST_ENTRY_NAME));
+	}
+
+	private static ByteBuffer readCentralDirectory(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_ZIP_COMMENT_SIZE);
+		ByteBuffer tail = read(channel, size - tailSize, tailSize);
+		for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+				long centralDirectorySize = tail.getInt(i + 12) & 0xffffffffL;
+				long centralDirectoryOffset = tail.getInt(i + 16) & 0xffffffffL;
+				if (centralDirectoryOffset + centralDirectorySize > size) {
+					throw new IOException("Central directory lies outside of the APK file");
+				}
+				return read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+			}
+		}
+		throw new IOException("APK file has no zip central directory");
+	}
+
+	private static ByteBuffer readEntry(FileChannel channel, int method, long compressedSize, long size,
+										long localHeaderOffset) throws IOException {
+		if (size > MAX_MANIFEST_SIZE || compressedSize > MAX_MANIFEST_SIZE) {
+			throw new IOException(String.format("%s is too large: %d bytes", MANIFEST_ENTRY_NAME, size));
+		}
+		ByteBuffer localHeader = read(channel, localHeaderOffset, LOCAL_FILE_HEADER_SIZE);
+		if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+			throw new IOException(String.format("Invalid local file header of %s", MANIFEST_ENTRY_NAME));
+		}
+		long dataOffset = localHeaderOffset + LOCAL_FILE_HEADER_SIZE + (localHeader.getShort(26) & 0xffff)
+				+ (localHeader.getShort(28) & 0xffff);
+		ByteBuffer data = read(channel, dataOffset, (int) compressedSize);
+		if (method == METHOD_STORED) {
+			return data;
+		}
+		if (method != METHOD_DEFLATED) {
+			throw new IOException(String.format("Unsupported compression method %d of %s", method,
+					MANIFEST_ENTRY_NAME));
+		}
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data.array(), 0, data.capacity());
+			byte[] manifest = new byte[(int) size];
+			int length = 0;
+			while (length < manifest.length && !inflater.finished()) {
+				int inflated = inflater.inflate(manifest, length, manifest.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+			if (length != manifest.length) {
+				throw new IOException(String.format("Truncated %s", MANIFEST_ENTRY_NAME));
+			}
+			return order(ByteBuffer.wrap(manifest));
+		} catch (DataFormatException e) {
+			throw new IOException(String.format("Failed to inflate %s", MANIFEST_ENTRY_NAME), e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of APK file");
+			}
+		}
+		buffer.flip();
+		return order(buffer);
+	}
+
+	private static Manifest parseManifest(ByteBuffer xml) throws IOException {
+		if ((xml.getShort(0) & 0xffff) != RES_XML_TYPE) {
+			throw new IOException(String.format("%s is not a binary XML document", MANIFEST_ENTRY_NAME));
+		}
+		Manifest manifest = new Manifest();
+		String[] strings = new String[0];
+		int[] resourceIds = new int[0];
+		int chunk = xml.getShort(2) & 0xffff;
+		while (chunk + 8 <= xml.limit()) {
+			int type = xml.getShort(chunk) & 0xffff;
+			int headerSize = xml.getShort(chunk + 2) & 0xffff;
+			int size = xml.getInt(chunk + 4);
+			if (size < 8 || chunk + size > xml.limit()) {
+				throw new IOException(String.format("Invalid chunk in %s", MANIFEST_ENTRY_NAME));
+			}
+			if (type == RES_STRING_POOL_TYPE) {
+				strings = readStringPool(xml, chunk);
+			} else if (type == RES_XML_RESOURCE_MAP_TYPE) {
+				resourceIds = new int[(size - headerSize) / 4];
+				for (int i = 0; i < resourceIds.length; i++) {
+					resourceIds[i] = xml.getInt(chunk + headerSize + i * 4);
+				}
+			} else if (type == RES_XML_START_ELEMENT_TYPE) {
+				String element = getString(strings, xml.getInt(chunk + headerSize + 4));
+				if ("manifest".equals(element) || "uses-sdk".equals(element)) {
+					readAttributes(xml, chunk + headerSize, strings, resourceIds, manifest);
+				}
+				if ("uses-sdk".equals(element)) {
+					break;
+				}
+			}
+			chunk += size;
+		}
+		if (manifest.packageName == null || manifest.versionCode == null) {
+			throw new IOException(String.format("%s does not declare a package name and version code",
+					MANIFEST_ENTRY_NAME));
+		}
+		return manifest;
+	}
+
+	private static void readAttributes(ByteBuffer xml, int element, String[] strings, int[] resourceIds,
+									   Manifest manifest) {
+		int attributeStart = xml.getShort(element + 8) & 0xffff;
+		int attributeSize = xml.getShort(element + 10) & 0xffff;
+		int attributeCount = xml.getShort(element + 12) & 0xffff;
+		for (int i = 0; i < attributeCount; i++) {
+			int attribute = element + attributeStart + i * attributeSize;
+			int nameIndex = xml.getInt(attribute + 4);
+			String name = getString(strings, nameIndex);
+			int resourceId = nameIndex >= 0 && nameIndex < resourceIds.length ? resourceIds[nameIndex] : 0;
+			String rawValue = getString(strings, xml.getInt(attribute + 8));
+			int dataType = xml.get(attribute + 15) & 0xff;
+			int data = xml.getInt(attribute + 16);
+			String value = getValue(strings, rawValue, dataType, data);
+			if ("package".equals(name) && resourceId == 0) {
+				manifest.packageName = value;
+			} else if (resourceId == ATTR_VERSION_CODE || resourceId == 0 && "versionCode".equals(name)) {
+				manifest.versionCode = value;
+			} else if (resourceId == ATTR_VERSION_NAME || resourceId == 0 && "versionName".equals(name)) {
+				manifest.versionName = value;
+			} else if (resourceId == ATTR_MIN_SDK_VERSION || resourceId == 0 && "minSdkVersion".equals(name)) {
+				manifest.minSdkVersion = value;
+			}
+		}
+	}
+
+	private static String getValue(String[] strings, String rawValue, int dataType, int data) {
+		switch (dataType) {
+			case TYPE_STRING:
+				return getString(strings, data);
+			case TYPE_INT_DEC:
+			case TYPE_INT_HEX:
+				return Integer.toString(data);
+			case TYPE_REFERENCE:
+				return String.format("@0x%08x", data);
+			default:
+				return rawValue;
+		}
+	}
+
+	private static String[] readStringPool(ByteBuffer xml, int chunk) {
+		int headerSize = xml.getShort(chunk + 2) & 0xffff;
+		String[] strings = new String[xml.getInt(chunk + 8)];
+		boolean utf8 = (xml.getInt(chunk + 16) & UTF8_FLAG) != 0;
+		int stringsStart = chunk + xml.getInt(chunk + 20);
+		for (int i = 0; i < strings.length; i++) {
+			int position = stringsStart + xml.getInt(chunk + headerSize + i * 4);
+			if (utf8) {
+				position += (xml.get(position) & 0x80) != 0 ? 2 : 1;
+				int length = xml.get(position) & 0xff;
+				position++;
+				if ((length & 0x80) != 0) {
+					length = (length & 0x7f) << 8 | xml.get(position) & 0xff;
+					position++;
+				}
+				strings[i] = decode(xml, position, length, UTF_8);
+			} else {
+				int length = xml.getShort(position) & 0xffff;
+				position += 2;
+				if ((length & 0x8000) != 0) {
+					length = (length & 0x7fff) << 16 | xml.getShort(position) & 0xffff;
+					position += 2;
+				}
+				strings[i] = decode(xml, position, length * 2, UTF_16LE);
+			}
+		}
+		return strings;
+	}
+
+	private static String decode(ByteBuffer xml, int position, int length, Charset charset) {
+		return new String(xml.array(), xml.arrayOffset() + position, length, charset);
+	}
+
+	private static String getString(String[] strings, int index) {
+		return index >= 0 && index < strings.length ? strings[index] : null;
+	}
+
+	private static ByteBuffer order(ByteBuffer buffer) {
+		return buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public static class Manifest {
+		private String packageName;
+		private String versionCode;
+		private String versionName;
+		private String minSdkVersion;
+
+		public String getPackageName() {
+			return packageName;
+		}
+
+		public String getVersionCode() {
+			return versionCode;
+		}
+
+		public String getVersionName() {
+			return versionName;
+		}
+
+		public String getMinSdkVersion() {
+			return minSdkVersion;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.Serializable;
+
+public class ApkMetadata implements Serializable {
+	private static final long serialVersionUID = 3L;
+	private final String packageName;
+	private final int versionCode;
+	private final String versionName;
+	private final String minSdkVersion;
+	private final long size;
+	private final String sha1;
+	private final String sha256;
+
+	public ApkMetadata(String packageName, int versionCode, String versionName, String minSdkVersion, long size,
+					   String sha1, String sha256) {
+		this.packageName = packageName;
+		this.versionCode = versionCode;
+		this.versionName = versionName;
+		this.minSdkVersion = minSdkVersion;
+		this.size = size;
+		this.sha1 = sha1;
+		this.sha256 = sha256;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	public int getVersionCode() {
+		return versionCode;
+	}
+
+	public String getVersionName() {
+		return versionName;
+	}
+
+	// Either an API level, a preview codename or a resource reference, null if it could not be read
+	public String getMinSdkVersion() {
+		return minSdkVersion;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+
+	public String getSha256() {
+		return sha256;
+	}
+}
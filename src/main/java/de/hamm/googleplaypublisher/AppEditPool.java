@@ -0,0 +1,234 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+import com.google.api.services.androidpublisher.model.AppEdit;
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AppEditPool {
+	private static final Log LOG = LogFactory.getLog(AppEditPool.class);
+	private static final long MIN_REMAINING_VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(15);
+	private static final long MAX_SHARED_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private static final int STATUS_CODE_CLIENT_ERROR = 400;
+	private static final int STATUS_CODE_SERVER_ERROR = 500;
+	private static final AppEditPool INSTANCE = new AppEditPool();
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private final ExecutorService refillExecutor =
+			Executors.newSingleThreadExecutor(new NamedThreadFactory("Google play Publisher edit pool"));
+
+	private AppEditPool() {
+	}
+
+	public static AppEditPool getInstance() {
+		return INSTANCE;
+	}
+
+	public AppEdit take(GoogleRobotCredentials credentials, AndroidPublisher.Edits edits, String packageName,
+						ApiRequestExecutor requestExecutor) throws IOException {
+		Entry entry = getEntry(credentials, packageName);
+		AppEdit appEdit;
+		synchronized (this) {
+			appEdit = entry.pooledAppEdit;
+			entry.pooledAppEdit = null;
+		}
+		if (!isValid(appEdit, System.currentTimeMillis())) {
+			scheduleDelete(entry, appEdit);
+		}
+		return verifyOrInsert(appEdit, edits, packageName, requestExecutor);
+	}
+
+	public AppEdit getShared(GoogleRobotCredentials credentials, AndroidPublisher.Edits edits, String packageName,
+							 ApiRequestExecutor requestExecutor) throws IOException {
+		Entry entry = getEntry(credentials, packageName);
+		synchronized (entry) {
+			long now = System.currentTimeMillis();
+			if (entry.sharedAppEdit == null || now - entry.sharedCreated > MAX_SHARED_AGE_MILLIS
+					|| !isValid(entry.sharedAppEdit, now)) {
+				scheduleDelete(entry, entry.sharedAppEdit);
+				entry.sharedAppEdit = requestExecutor.execute(edits.insert(packageName, null));
+				entry.sharedCreated = now;
+			} else {
+				AppEdit sharedAppEdit = verifyOrInsert(entry.sharedAppEdit, edits, packageName, requestExecutor);
+				if (sharedAppEdit != entry.sharedAppEdit) {
+					entry.sharedAppEdit = sharedAppEdit;
+					entry.sharedCreated = now;
+				}
+			}
+			return entry.sharedAppEdit;
+		}
+	}
+
+	public void invalidate(String credentialId, String packageName) {
+		Entry entry;
+		AppEdit pooledAppEdit;
+		AppEdit sharedAppEdit;
+		synchronized (this) {
+			entry = entries.get(getKey(credentialId, packageName));
+			if (entry == null) {
+				return;
+			}
+			pooledAppEdit = entry.pooledAppEdit;
+			entry.pooledAppEdit = null;
+			entry.generation++;
+		}
+		synchronized (entry) {
+			sharedAppEdit = entry.sharedAppEdit;
+			entry.sharedAppEdit = null;
+		}
+		scheduleDelete(entry, pooledAppEdit);
+		scheduleDelete(entry, sharedAppEdit);
+		scheduleRefill(entry);
+	}
+
+	// A commit outside of this controller, e.g. in the Google play Developer Console, invalidates the pooled edit
+	static AppEdit verifyOrInsert(AppEdit appEdit, AndroidPublisher.Edits edits, String packageName,
+								  ApiRequestExecutor requestExecutor) throws IOException {
+		if (isValid(appEdit, System.currentTimeMillis())) {
+			try {
+				requestExecutor.execute(edits.get(packageName, appEdit.getId()));
+				return appEdit;
+			} catch (HttpResponseException e) {
+				if (e.getStatusCode() < STATUS_CODE_CLIENT_ERROR || e.getStatusCode() >= STATUS_CODE_SERVER_ERROR) {
+					throw e;
+				}
+				LOG.info(String.format("Pooled App edit with id %s of package '%s' is gone (HTTP %d), creating a " +
+						"new one", appEdit.getId(), packageName, e.getStatusCode()));
+			}
+		}
+		return requestExecutor.execute(edits.insert(packageName, null));
+	}
+
+	private synchronized Entry getEntry(GoogleRobotCredentials credentials, String packageName) {
+		long now = System.currentTimeMillis();
+		evictIdleEntries(now);
+		String key = getKey(credentials.getId(), packageName);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry(packageName);
+			entries.put(key, entry);
+		}
+		entry.credentials = credentials;
+		entry.lastAccess = now;
+		return entry;
+	}
+
+	private void scheduleRefill(final Entry entry) {
+		final GoogleRobotCredentials credentials;
+		final long generation;
+		synchronized (this) {
+			if (entry.pooledAppEdit != null || entry.refilling) {
+				return;
+			}
+			entry.refilling = true;
+			credentials = entry.credentials;
+			generation = entry.generation;
+		}
+		refillExecutor.execute(new Runnable() {
+			public void run() {
+				AppEdit appEdit = null;
+				try {
+					ApiRequestExecutor requestExecutor =
+							new ApiRequestExecutor(new PrintStream(new NullOutputStream()), credentials.getId());
+					appEdit = requestExecutor.execute(AndroidPublisherClientCache.getInstance()
+							.getAndroidPublisher(credentials).edits().insert(entry.packageName, null));
+				} catch (GeneralSecurityException e) {
+					LOG.warn(String.format("Failed to pre-create App edit for package '%s'", entry.packageName), e);
+				} catch (IOException e) {
+					LOG.warn(String.format("Failed to pre-create App edit for package '%s'", entry.packageName), e);
+				} finally {
+					boolean stale;
+					synchronized (AppEditPool.this) {
+						entry.refilling = false;
+						stale = entry.generation != generation;
+						if (appEdit != null && !stale) {
+							entry.pooledAppEdit = appEdit;
+						}
+					}
+					if (stale) {
+						// The package was committed while this edit was being created, start over
+						scheduleDelete(entry, appEdit);
+						scheduleRefill(entry);
+					}
+				}
+			}
+		});
+	}
+
+	private void scheduleDelete(final Entry entry, final AppEdit appEdit) {
+		if (appEdit == null) {
+			return;
+		}
+		final GoogleRobotCredentials credentials = entry.credentials;
+		refillExecutor.execute(new Runnable() {
+			public void run() {
+				try {
+					ApiRequestExecutor requestExecutor =
+							new ApiRequestExecutor(new PrintStream(new NullOutputStream()), credentials.getId());
+					requestExecutor.executeOnce(AndroidPublisherClientCache.getInstance()
+							.getAndroidPublisher(credentials).edits().delete(entry.packageName, appEdit.getId()));
+				} catch (GeneralSecurityException e) {
+					LOG.debug(String.format("Failed to delete App edit with id %s", appEdit.getId()), e);
+				} catch (IOException e) {
+					// Edits that were invalidated by a commit can no longer be deleted
+					LOG.debug(String.format("Failed to delete App edit with id %s", appEdit.getId()), e);
+				}
+			}
+		});
+	}
+
+	private void evictIdleEntries(long now) {
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext(); ) {
+			Entry entry = i.next();
+			if (now - entry.lastAccess > IDLE_TIMEOUT_MILLIS) {
+				i.remove();
+				scheduleDelete(entry, entry.pooledAppEdit);
+				scheduleDelete(entry, entry.sharedAppEdit);
+			}
+		}
+	}
+
+	private static boolean isValid(AppEdit appEdit, long now) {
+		if (appEdit == null || appEdit.getExpiryTimeSeconds() == null) {
+			return false;
+		}
+		try {
+			long expiryTimeMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(appEdit.getExpiryTimeSeconds()));
+			return expiryTimeMillis - now > MIN_REMAINING_VALIDITY_MILLIS;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static String getKey(String credentialId, String packageName) {
+		return credentialId + '/' + packageName;
+	}
+
+	private static class Entry {
+		private final String packageName;
+		private GoogleRobotCredentials credentials;
+		private long lastAccess;
+		private AppEdit pooledAppEdit;
+		private boolean refilling;
+		private int generation;
+		private AppEdit sharedAppEdit;
+		private long sharedCreated;
+
+		private Entry(String packageName) {
+			this.packageName = packageName;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.AbortException;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public abstract class AsyncStepExecution<T> extends AbstractStepExecutionImpl {
+	private static final int MAX_PARALLEL_EXECUTIONS = 8;
+	private static final ExecutorService IO_EXECUTOR = createExecutor();
+	private transient volatile Future<?> future;
+	private final transient AtomicBoolean completed = new AtomicBoolean();
+
+	private static ExecutorService createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PARALLEL_EXECUTIONS, MAX_PARALLEL_EXECUTIONS,
+				1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+				new NamedThreadFactory("Google play Publisher step"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Override
+	public boolean start() throws Exception {
+		future = IO_EXECUTOR.submit(new Runnable() {
+			public void run() {
+				T result;
+				try {
+					result = execute();
+				} catch (Throwable e) {
+					fail(e);
+					return;
+				}
+				if (completed.compareAndSet(false, true)) {
+					getContext().onSuccess(result);
+				}
+			}
+		});
+		return false;
+	}
+
+	@Override
+	public void stop(Throwable cause) throws Exception {
+		Future<?> future = this.future;
+		fail(cause);
+		if (future != null) {
+			future.cancel(true);
+		}
+	}
+
+	private void fail(Throwable cause) {
+		if (completed.compareAndSet(false, true)) {
+			getContext().onFailure(cause);
+		}
+	}
+
+	@Override
+	public void onResume() {
+		getContext().onFailure(new AbortException("Google play Publisher step was interrupted by a restart"));
+	}
+
+	protected abstract T execute() throws Exception;
+}
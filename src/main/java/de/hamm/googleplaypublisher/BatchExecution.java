@@ -0,0 +1,91 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchExecution {
+	private static final int MAX_BATCH_SIZE = 100;
+	private static final String BATCH_OPERATION_NAME = "Batch";
+	private final AndroidPublisher androidPublisher;
+	private final ApiRequestExecutor requestExecutor;
+	private final List<BatchRequest> batchRequests = new ArrayList<BatchRequest>();
+	private final List<String> failures = new ArrayList<String>();
+
+	public BatchExecution(AndroidPublisher androidPublisher, ApiRequestExecutor requestExecutor) {
+		this.androidPublisher = androidPublisher;
+		this.requestExecutor = requestExecutor;
+	}
+
+	public <T> void queue(AbstractGoogleJsonClientRequest<T> request, final Callback<T> callback) throws IOException {
+		request.queue(getBatchRequest(), new JsonBatchCallback<T>() {
+			@Override
+			public void onSuccess(T result, HttpHeaders responseHeaders) throws IOException {
+				callback.onSuccess(result);
+			}
+
+			@Override
+			public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) throws IOException {
+				String failure = callback.onFailure(error);
+				if (failure != null) {
+					failures.add(failure);
+				}
+			}
+		});
+	}
+
+	public void execute() throws IOException {
+		for (BatchRequest i : batchRequests) {
+			requestExecutor.acquire(i.size());
+			long startNanos = System.nanoTime();
+			boolean success = false;
+			try {
+				i.execute();
+				success = true;
+			} finally {
+				requestExecutor.record(BATCH_OPERATION_NAME, startNanos, success);
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (BatchRequest i : batchRequests) {
+			size += i.size();
+		}
+		return size;
+	}
+
+	public List<String> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	private BatchRequest getBatchRequest() {
+		if (batchRequests.isEmpty() || batchRequests.get(batchRequests.size() - 1).size() >= MAX_BATCH_SIZE) {
+			batchRequests.add(androidPublisher.batch());
+		}
+		return batchRequests.get(batchRequests.size() - 1);
+	}
+
+	public abstract static class Callback<T> {
+		private final String failureMessage;
+
+		public Callback(String failureMessage) {
+			this.failureMessage = failureMessage;
+		}
+
+		public abstract void onSuccess(T result);
+
+		public String onFailure(GoogleJsonError error) {
+			return String.format("%s. Google play Api Message: '%s'", failureMessage, error.getMessage());
+		}
+	}
+}
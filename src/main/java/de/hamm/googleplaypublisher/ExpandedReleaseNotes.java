@@ -0,0 +1,22 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.Serializable;
+
+public final class ExpandedReleaseNotes implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final String language;
+	private final String releaseNotes;
+
+	public ExpandedReleaseNotes(String language, String releaseNotes) {
+		this.language = language;
+		this.releaseNotes = releaseNotes;
+	}
+
+	public String getLanguage() {
+		return language;
+	}
+
+	public String getReleaseNotes() {
+		return releaseNotes;
+	}
+}
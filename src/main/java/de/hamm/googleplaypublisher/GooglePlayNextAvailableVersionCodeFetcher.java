@@ -54,6 +54,12 @@ public class GooglePlayNextAvailableVersionCodeFetcher extends BuildWrapper {
 			LOG.error(e.getMessage(), e);
 			build.setResult(Result.FAILURE);
 			return null;
+		} finally {
+			ApiCallStatistics apiCallStatistics = nextAvailableVersionCodeFetcherHelper.getApiCallStatistics();
+			if (!apiCallStatistics.isEmpty()) {
+				build.addAction(new ApiCallStatisticsAction("Google play Version code fetcher API calls",
+						apiCallStatistics));
+			}
 		}
 	}
 
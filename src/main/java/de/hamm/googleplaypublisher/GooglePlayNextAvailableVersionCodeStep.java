@@ -0,0 +1,91 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.inject.Inject;
+import java.io.PrintStream;
+
+public class GooglePlayNextAvailableVersionCodeStep extends AbstractStepImpl {
+	private static final Log LOG = LogFactory.getLog(GooglePlayNextAvailableVersionCodeStep.class);
+	private final String credentialId;
+	private final String packageName;
+
+	@DataBoundConstructor
+	public GooglePlayNextAvailableVersionCodeStep(String credentialId, String packageName) {
+		this.credentialId = credentialId;
+		this.packageName = packageName;
+	}
+
+	public String getCredentialId() {
+		return credentialId;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	@Extension(optional = true)
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "googlePlayNextVersionCode";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Fetch Next available Versioncode from Google play";
+		}
+	}
+
+	public static class Execution extends AsyncStepExecution<Integer> {
+		private static final long serialVersionUID = 1L;
+		@Inject
+		private transient GooglePlayNextAvailableVersionCodeStep step;
+		@StepContextParameter
+		private transient Run<?, ?> run;
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		@Override
+		protected Integer execute() throws Exception {
+			PrintStream logger = listener.getLogger();
+			logger.println("[Google play Publisher] - Fetching Next available Versioncode");
+			NextAvailableVersionCodeFetcherHelper nextAvailableVersionCodeFetcherHelper =
+					new NextAvailableVersionCodeFetcherHelper.Builder()
+							.setLogger(logger)
+							.setCredentials(GoogleRobotCredentials.getById(step.getCredentialId()))
+							.setPackageName(step.getPackageName())
+							.createNextAvailableVersionCodeFetcherHelper();
+			try {
+				int nextAvailableVersionCode = nextAvailableVersionCodeFetcherHelper.fetchNextAvailableVersionCode();
+				logger.println(String.format("[Google play Publisher] - Next Available Versioncode is %d",
+						nextAvailableVersionCode));
+				return nextAvailableVersionCode;
+			} catch (NextAvailableVersionCodeFetcherHelper.NextAvailableVersionCodeFetcherException e) {
+				logger.println("[Google play Publisher] - " + e.getMessage());
+				LOG.error(e.getMessage(), e);
+				throw new AbortException(e.getMessage());
+			} finally {
+				ApiCallStatistics apiCallStatistics = nextAvailableVersionCodeFetcherHelper.getApiCallStatistics();
+				if (!apiCallStatistics.isEmpty()) {
+					run.addAction(new ApiCallStatisticsAction("Google play Version code fetcher API calls",
+							apiCallStatistics));
+				}
+			}
+		}
+	}
+}
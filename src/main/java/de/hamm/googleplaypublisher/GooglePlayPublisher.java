@@ -6,23 +6,30 @@ import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
 import hudson.model.Result;
+import hudson.model.Run;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RequiresDomain(value = AndroidPublisherScopeRequirement.class)
 public class GooglePlayPublisher extends Recorder {
@@ -31,13 +38,28 @@ public class GooglePlayPublisher extends Recorder {
 	private final String apkFile;
 	private final Track track;
 	private final List<ReleaseNotes> releaseNotes;
+	private final String releaseNotesDirectory;
+	private final MultiplePackages multiplePackages;
+	private final ResumableUpload resumableUpload;
+	private final boolean uploadOnAgent;
+	private final int releaseNotesConcurrency;
+	private final boolean batchRequests;
 
 	@DataBoundConstructor
-	public GooglePlayPublisher(String credentialId, String apkFile, Track track, List<ReleaseNotes> releaseNotes) {
+	public GooglePlayPublisher(String credentialId, String apkFile, MultiplePackages multiplePackages, Track track,
+							   List<ReleaseNotes> releaseNotes, String releaseNotesDirectory,
+							   ResumableUpload resumableUpload, boolean uploadOnAgent, int releaseNotesConcurrency,
+							   boolean batchRequests) {
 		this.credentialId = credentialId;
 		this.apkFile = apkFile;
+		this.multiplePackages = multiplePackages;
 		this.track = track;
 		this.releaseNotes = releaseNotes;
+		this.releaseNotesDirectory = Util.fixEmptyAndTrim(releaseNotesDirectory);
+		this.resumableUpload = resumableUpload;
+		this.uploadOnAgent = uploadOnAgent;
+		this.releaseNotesConcurrency = releaseNotesConcurrency;
+		this.batchRequests = batchRequests;
 	}
 
 	public static List<Track.DescriptorImpl> getTrackDescriptors() {
@@ -52,31 +74,83 @@ public class GooglePlayPublisher extends Recorder {
 	@Override
 	public boolean perform(AbstractBuild build, Launcher launcher, BuildListener listener)
 			throws IOException, InterruptedException {
-		PrintStream logger = listener.getLogger();
+		Result result = publish(build, build.getModuleRoot(), build.getEnvironment(listener), listener.getLogger());
+		if (result != Result.SUCCESS) {
+			build.setResult(result);
+		}
+		return result != Result.FAILURE;
+	}
+
+	Result publish(Run<?, ?> build, FilePath workspace, EnvVars envVars, PrintStream logger)
+			throws IOException, InterruptedException {
+		boolean published = true;
 		logger.println("[Google play Publisher] - Starting");
-		expandReleaseNotes(build.getEnvironment(listener));
+		PublishHelper publishHelper = null;
+		MultiPackagePublishHelper multiPackagePublishHelper = null;
 		try {
-			new PublishHelper.Builder()
+			PublishHelper.Builder publishHelperBuilder = new PublishHelper.Builder()
 					.setLogger(logger)
 					.setCredentials(GoogleRobotCredentials.getById(credentialId))
-					.setApkFilePath(new FilePath(build.getModuleRoot(), apkFile))
 					.setTrack(track)
 					.setReleaseNotes(releaseNotes)
-					.createPublishHelper()
-					.publish();
+					.setReleaseNotesDirectory(resolveReleaseNotesDirectory(workspace, envVars))
+					.setResumableUpload(resumableUpload)
+					.setUploadOnAgent(uploadOnAgent)
+					.setReleaseNotesConcurrency(getReleaseNotesConcurrency())
+					.setBatchRequests(batchRequests)
+					.setEnvVars(envVars);
+			List<FilePath> apkFilePaths = resolveApkFilePaths(workspace);
+			if (multiplePackages == null) {
+				File previousBuildDirectory = getPreviousFailedBuildDirectory(build);
+				publishHelper = publishHelperBuilder
+						.setApkFilePaths(apkFilePaths)
+						.setJournalFile(PublishJournal.getFile(build.getRootDir()))
+						.setPreviousJournalFile(
+								previousBuildDirectory == null ? null : PublishJournal.getFile(previousBuildDirectory))
+						.createPublishHelper();
+				published = publishHelper.publish();
+			} else {
+				multiPackagePublishHelper = new MultiPackagePublishHelper.Builder()
+						.setLogger(logger)
+						.setPublishHelperBuilder(publishHelperBuilder)
+						.setApkFilePaths(apkFilePaths)
+						.setJournalDirectory(build.getRootDir())
+						.setPreviousJournalDirectory(getPreviousFailedBuildDirectory(build))
+						.setMaxParallelPackages(multiplePackages.getMaxParallelPackages())
+						.createMultiPackagePublishHelper();
+				published = multiPackagePublishHelper.publish();
+			}
 		} catch (PublishHelper.ReadPackageNameException e) {
 			logger.println("[Google play Publisher] - " + e.getMessage());
 			LOG.error(e.getMessage(), e);
-			build.setResult(Result.FAILURE);
-			return false;
+			return Result.FAILURE;
 		} catch (PublishHelper.PublishApkException e) {
 			logger.println("[Google play Publisher] - " + e.getMessage());
 			LOG.error(e.getMessage(), e);
-			build.setResult(Result.FAILURE);
-			return false;
+			return Result.FAILURE;
+		} finally {
+			if (publishHelper != null && !publishHelper.getApiCallStatistics().isEmpty()) {
+				build.addAction(new ApiCallStatisticsAction("Google play Publisher API calls",
+						publishHelper.getApiCallStatistics()));
+			}
+			if (multiPackagePublishHelper != null) {
+				for (Map.Entry<String, ApiCallStatistics> i :
+						multiPackagePublishHelper.getApiCallStatistics().entrySet()) {
+					if (!i.getValue().isEmpty()) {
+						build.addAction(new ApiCallStatisticsAction(
+								String.format("Google play Publisher API calls (%s)", i.getKey()), i.getValue()));
+					}
+				}
+			}
+		}
+		if (!published) {
+			logger.println(multiPackagePublishHelper == null
+					? "[Google play Publisher] - Superseded by a newer publish, nothing has been uploaded"
+					: "[Google play Publisher] - Superseded by a newer publish for at least one package");
+			return Result.UNSTABLE;
 		}
 		logger.println("[Google play Publisher] - Finished");
-		return true;
+		return Result.SUCCESS;
 	}
 
 	@Override
@@ -96,6 +170,10 @@ public class GooglePlayPublisher extends Recorder {
 		return apkFile;
 	}
 
+	public MultiplePackages getMultiplePackages() {
+		return multiplePackages;
+	}
+
 	public Track getTrack() {
 		return track;
 	}
@@ -104,12 +182,66 @@ public class GooglePlayPublisher extends Recorder {
 		return releaseNotes;
 	}
 
-	private void expandReleaseNotes(EnvVars envVars) {
-		if (releaseNotes != null) {
-			for (ReleaseNotes i : releaseNotes) {
-				i.expand(envVars);
+	public String getReleaseNotesDirectory() {
+		return releaseNotesDirectory;
+	}
+
+	public ResumableUpload getResumableUpload() {
+		return resumableUpload;
+	}
+
+	public boolean isUploadOnAgent() {
+		return uploadOnAgent;
+	}
+
+	public int getReleaseNotesConcurrency() {
+		if (releaseNotesConcurrency <= 0) {
+			return PublishHelper.DEFAULT_RELEASE_NOTES_CONCURRENCY;
+		}
+		return releaseNotesConcurrency;
+	}
+
+	public boolean isBatchRequests() {
+		return batchRequests;
+	}
+
+	private FilePath resolveReleaseNotesDirectory(FilePath moduleRoot, EnvVars envVars) {
+		if (releaseNotesDirectory == null) {
+			return null;
+		}
+		return new FilePath(moduleRoot, envVars.expand(releaseNotesDirectory));
+	}
+
+	private List<FilePath> resolveApkFilePaths(FilePath moduleRoot)
+			throws IOException, InterruptedException, PublishHelper.ReadPackageNameException {
+		List<FilePath> apkFilePaths = new ArrayList<FilePath>();
+		Set<String> remotePaths = new HashSet<String>();
+		for (String i : apkFile.split(",")) {
+			String pattern = i.trim();
+			if (pattern.length() == 0) {
+				continue;
+			}
+			FilePath apkFilePath = new FilePath(moduleRoot, pattern);
+			FilePath[] matches = apkFilePath.exists() ? new FilePath[]{apkFilePath} : moduleRoot.list(pattern);
+			for (FilePath j : matches) {
+				if (remotePaths.add(j.getRemote())) {
+					apkFilePaths.add(j);
+				}
 			}
 		}
+		if (apkFilePaths.isEmpty()) {
+			throw new PublishHelper.ReadPackageNameException(
+					String.format("Could not find file '%s'", new FilePath(moduleRoot, apkFile)), null);
+		}
+		return apkFilePaths;
+	}
+
+	private static File getPreviousFailedBuildDirectory(Run<?, ?> build) {
+		Run<?, ?> previousBuild = build.getPreviousBuild();
+		if (previousBuild == null || previousBuild.getResult() != Result.FAILURE) {
+			return null;
+		}
+		return previousBuild.getRootDir();
 	}
 
 	@Extension
@@ -121,5 +253,60 @@ public class GooglePlayPublisher extends Recorder {
 		public String getDisplayName() {
 			return "Publish on Google play";
 		}
+
+		@SuppressWarnings("unused")
+		public ListBoxModel doFillChunkSizeItems() {
+			return ResumableUpload.createChunkSizeItems();
+		}
+	}
+
+	public static class MultiplePackages {
+		private final int maxParallelPackages;
+
+		@DataBoundConstructor
+		public MultiplePackages(int maxParallelPackages) {
+			this.maxParallelPackages = maxParallelPackages;
+		}
+
+		public int getMaxParallelPackages() {
+			if (maxParallelPackages <= 0) {
+				return MultiPackagePublishHelper.DEFAULT_MAX_PARALLEL_PACKAGES;
+			}
+			return maxParallelPackages;
+		}
+	}
+
+	public static class ResumableUpload {
+		private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+		private static final int MAX_RESUME_ATTEMPTS = 5;
+		private final int chunkSize;
+
+		@DataBoundConstructor
+		public ResumableUpload(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public int getChunkSizeInBytes() {
+			return chunkSize * BYTES_PER_MEGABYTE;
+		}
+
+		public int getMaxResumeAttempts() {
+			return MAX_RESUME_ATTEMPTS;
+		}
+
+		public static ListBoxModel createChunkSizeItems() {
+			ListBoxModel model = new ListBoxModel();
+			model.add("1 MB", "1");
+			model.add("2 MB", "2");
+			model.add("5 MB", "5");
+			model.add("10 MB", "10");
+			model.add("20 MB", "20");
+			model.add("50 MB", "50");
+			return model;
+		}
 	}
 }
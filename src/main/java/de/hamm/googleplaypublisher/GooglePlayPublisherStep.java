@@ -0,0 +1,156 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.ListBoxModel;
+import jenkins.model.StandardArtifactManager;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.List;
+
+public class GooglePlayPublisherStep extends AbstractStepImpl {
+	private final String credentialId;
+	private final String apkFile;
+	private final GooglePlayPublisher.MultiplePackages multiplePackages;
+	private final Track track;
+	private final List<ReleaseNotes> releaseNotes;
+	private final String releaseNotesDirectory;
+	private final GooglePlayPublisher.ResumableUpload resumableUpload;
+	private final boolean uploadOnAgent;
+	private final int releaseNotesConcurrency;
+	private final boolean batchRequests;
+
+	@DataBoundConstructor
+	public GooglePlayPublisherStep(String credentialId, String apkFile,
+								   GooglePlayPublisher.MultiplePackages multiplePackages, Track track,
+								   List<ReleaseNotes> releaseNotes, String releaseNotesDirectory,
+								   GooglePlayPublisher.ResumableUpload resumableUpload, boolean uploadOnAgent,
+								   int releaseNotesConcurrency, boolean batchRequests) {
+		this.credentialId = credentialId;
+		this.apkFile = apkFile;
+		this.multiplePackages = multiplePackages;
+		this.track = track;
+		this.releaseNotes = releaseNotes;
+		this.releaseNotesDirectory = releaseNotesDirectory;
+		this.resumableUpload = resumableUpload;
+		this.uploadOnAgent = uploadOnAgent;
+		this.releaseNotesConcurrency = releaseNotesConcurrency;
+		this.batchRequests = batchRequests;
+	}
+
+	public String getCredentialId() {
+		return credentialId;
+	}
+
+	public String getApkFile() {
+		return apkFile;
+	}
+
+	public GooglePlayPublisher.MultiplePackages getMultiplePackages() {
+		return multiplePackages;
+	}
+
+	public Track getTrack() {
+		return track;
+	}
+
+	public List<ReleaseNotes> getReleaseNotes() {
+		return releaseNotes;
+	}
+
+	public String getReleaseNotesDirectory() {
+		return releaseNotesDirectory;
+	}
+
+	public GooglePlayPublisher.ResumableUpload getResumableUpload() {
+		return resumableUpload;
+	}
+
+	public boolean isUploadOnAgent() {
+		return uploadOnAgent;
+	}
+
+	public int getReleaseNotesConcurrency() {
+		return releaseNotesConcurrency;
+	}
+
+	public boolean isBatchRequests() {
+		return batchRequests;
+	}
+
+	private GooglePlayPublisher createPublisher() {
+		return new GooglePlayPublisher(credentialId, apkFile, multiplePackages, track, releaseNotes,
+				releaseNotesDirectory, resumableUpload, uploadOnAgent, releaseNotesConcurrency, batchRequests);
+	}
+
+	@Extension(optional = true)
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "googlePlayPublish";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Publish on Google play";
+		}
+
+		@SuppressWarnings("unused")
+		public ListBoxModel doFillChunkSizeItems() {
+			return GooglePlayPublisher.ResumableUpload.createChunkSizeItems();
+		}
+	}
+
+	public static class Execution extends AsyncStepExecution<Void> {
+		private static final long serialVersionUID = 1L;
+		@Inject
+		private transient GooglePlayPublisherStep step;
+		@StepContextParameter
+		private transient Run<?, ?> run;
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		@Override
+		protected Void execute() throws Exception {
+			EnvVars envVars = getContext().get(EnvVars.class);
+			if (envVars == null) {
+				envVars = run.getEnvironment(listener);
+			}
+			Result result = step.createPublisher().publish(run, getFileRoot(), envVars, listener.getLogger());
+			if (result == Result.FAILURE) {
+				throw new AbortException("Failed to publish on Google play");
+			}
+			if (result != Result.SUCCESS) {
+				run.setResult(result);
+			}
+			return null;
+		}
+
+		private FilePath getFileRoot() throws IOException, InterruptedException {
+			FilePath workspace = getContext().get(FilePath.class);
+			if (workspace != null) {
+				return workspace;
+			}
+			if (!(run.getArtifactManager() instanceof StandardArtifactManager)) {
+				throw new AbortException("Publishing on Google play outside of a node block requires the archived " +
+						"artifacts to be stored on the Jenkins controller");
+			}
+			listener.getLogger().println("[Google play Publisher] - No workspace, publishing archived artifacts");
+			return new FilePath(run.getArtifactsDir());
+		}
+	}
+}
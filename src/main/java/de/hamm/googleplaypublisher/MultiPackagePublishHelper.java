@@ -0,0 +1,151 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+public class MultiPackagePublishHelper {
+	public static final int DEFAULT_MAX_PARALLEL_PACKAGES = 4;
+	private final PrintStream logger;
+	private final int maxParallelPackages;
+	private final Map<String, PublishHelper> publishHelpers = new LinkedHashMap<String, PublishHelper>();
+
+	private MultiPackagePublishHelper(PrintStream logger, PublishHelper.Builder publishHelperBuilder,
+									  List<FilePath> apkFilePaths, File journalDirectory,
+									  File previousJournalDirectory, int maxParallelPackages)
+			throws PublishHelper.ReadPackageNameException, PublishHelper.PublishApkException {
+		this.logger = logger;
+		this.maxParallelPackages = maxParallelPackages;
+		Map<String, Map<FilePath, ApkMetadata>> packages =
+				groupByPackageName(PublishHelper.readAllApkMetadata(logger, apkFilePaths));
+		publishHelperBuilder.setLogger(logger).expandReleaseNotes();
+		for (Map.Entry<String, Map<FilePath, ApkMetadata>> i : packages.entrySet()) {
+			String packageName = i.getKey();
+			publishHelpers.put(packageName, publishHelperBuilder
+					.setLogger(new PrefixedPrintStream(logger, String.format("[%s] ", packageName)))
+					.setApkFilePaths(new ArrayList<FilePath>(i.getValue().keySet()))
+					.setApkMetadata(i.getValue())
+					.setJournalFile(PublishJournal.getFile(journalDirectory, packageName))
+					.setPreviousJournalFile(previousJournalDirectory == null ? null
+							: PublishJournal.getFile(previousJournalDirectory, packageName))
+					.createPublishHelper());
+		}
+	}
+
+	private static Map<String, Map<FilePath, ApkMetadata>> groupByPackageName(
+			Map<FilePath, ApkMetadata> apkMetadata) {
+		Map<String, Map<FilePath, ApkMetadata>> packages = new LinkedHashMap<String, Map<FilePath, ApkMetadata>>();
+		for (Map.Entry<FilePath, ApkMetadata> i : apkMetadata.entrySet()) {
+			Map<FilePath, ApkMetadata> apks = packages.get(i.getValue().getPackageName());
+			if (apks == null) {
+				apks = new LinkedHashMap<FilePath, ApkMetadata>();
+				packages.put(i.getValue().getPackageName(), apks);
+			}
+			apks.put(i.getKey(), i.getValue());
+		}
+		return packages;
+	}
+
+	public Map<String, ApiCallStatistics> getApiCallStatistics() {
+		Map<String, ApiCallStatistics> statistics = new LinkedHashMap<String, ApiCallStatistics>();
+		for (Map.Entry<String, PublishHelper> i : publishHelpers.entrySet()) {
+			statistics.put(i.getKey(), i.getValue().getApiCallStatistics());
+		}
+		return statistics;
+	}
+
+	// Returns false if at least one package was superseded by a publish of a higher version code and skipped
+	public boolean publish() throws PublishHelper.PublishApkException {
+		logger.println(String.format("Publishing %d packages, at most %d at the same time", publishHelpers.size(),
+				maxParallelPackages));
+		ParallelTasks<String, Boolean> publishes =
+				new ParallelTasks<String, Boolean>("Google play Publisher packages", maxParallelPackages);
+		for (Map.Entry<String, PublishHelper> i : publishHelpers.entrySet()) {
+			final PublishHelper publishHelper = i.getValue();
+			publishes.add(i.getKey(), new Callable<Boolean>() {
+				public Boolean call() throws PublishHelper.PublishApkException {
+					return publishHelper.publish();
+				}
+			});
+		}
+		final ParallelTasks.Result<String, Boolean> result;
+		try {
+			result = publishes.run();
+		} catch (InterruptedException e) {
+			throw new PublishHelper.PublishApkException("Interrupted while publishing packages", e);
+		}
+		logger.println(getSummary(result));
+		if (!result.isSuccessful()) {
+			throw new PublishHelper.PublishApkException(String.format("Failed to publish %d of %d packages %s",
+					result.getFailures().size(), publishHelpers.size(), result.getFailures().keySet()),
+					result.getFailures().values().iterator().next());
+		}
+		return !result.getValues().containsValue(Boolean.FALSE);
+	}
+
+	private String getSummary(ParallelTasks.Result<String, Boolean> result) {
+		StringBuilder summary = new StringBuilder("Package results:");
+		for (String i : publishHelpers.keySet()) {
+			Throwable failure = result.getFailures().get(i);
+			if (failure == null && Boolean.FALSE.equals(result.getValues().get(i))) {
+				summary.append(String.format("%n  %s: superseded, nothing has been uploaded", i));
+			} else if (failure == null) {
+				summary.append(String.format("%n  %s: published", i));
+			} else {
+				summary.append(String.format("%n  %s: failed - %s", i, failure.getMessage()));
+			}
+		}
+		return summary.toString();
+	}
+
+	public static class Builder {
+		private PrintStream logger;
+		private PublishHelper.Builder publishHelperBuilder;
+		private List<FilePath> apkFilePaths;
+		private File journalDirectory;
+		private File previousJournalDirectory;
+		private int maxParallelPackages = DEFAULT_MAX_PARALLEL_PACKAGES;
+
+		public Builder setLogger(PrintStream logger) {
+			this.logger = logger;
+			return this;
+		}
+
+		public Builder setPublishHelperBuilder(PublishHelper.Builder publishHelperBuilder) {
+			this.publishHelperBuilder = publishHelperBuilder;
+			return this;
+		}
+
+		public Builder setApkFilePaths(List<FilePath> apkFilePaths) {
+			this.apkFilePaths = apkFilePaths;
+			return this;
+		}
+
+		public Builder setJournalDirectory(File journalDirectory) {
+			this.journalDirectory = journalDirectory;
+			return this;
+		}
+
+		public Builder setPreviousJournalDirectory(File previousJournalDirectory) {
+			this.previousJournalDirectory = previousJournalDirectory;
+			return this;
+		}
+
+		public Builder setMaxParallelPackages(int maxParallelPackages) {
+			this.maxParallelPackages = maxParallelPackages;
+			return this;
+		}
+
+		public MultiPackagePublishHelper createMultiPackagePublishHelper()
+				throws PublishHelper.ReadPackageNameException, PublishHelper.PublishApkException {
+			return new MultiPackagePublishHelper(logger, publishHelperBuilder, apkFilePaths, journalDirectory,
+					previousJournalDirectory, maxParallelPackages);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package de.hamm.googleplaypublisher;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NamedThreadFactory implements ThreadFactory {
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+	private final String name;
+
+	public NamedThreadFactory(String name) {
+		this.name = name;
+	}
+
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, String.format("%s #%d", name, threadNumber.getAndIncrement()));
+		thread.setDaemon(true);
+		return thread;
+	}
+}
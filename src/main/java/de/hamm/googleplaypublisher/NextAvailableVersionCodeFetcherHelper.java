@@ -1,11 +1,5 @@
 package de.hamm.googleplaypublisher;
 
-import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.jackson.JacksonFactory;
 import com.google.api.services.androidpublisher.AndroidPublisher;
 import com.google.api.services.androidpublisher.model.Apk;
 import com.google.api.services.androidpublisher.model.ApksListResponse;
@@ -17,54 +11,61 @@ import java.io.PrintStream;
 import java.security.GeneralSecurityException;
 
 public class NextAvailableVersionCodeFetcherHelper {
-	private static final String APPLICATION_NAME = "de.hamm.googleplaypublisher";
-	private final JsonFactory jsonFactory = new JacksonFactory();
-	private final HttpTransport httpTransport;
 	private final PrintStream logger;
 	private final GoogleRobotCredentials credentials;
 	private final String packageName;
+	private final ApiRequestExecutor requestExecutor;
 	private AndroidPublisher.Edits edits;
 	private String appEditId;
 
 	private NextAvailableVersionCodeFetcherHelper(PrintStream logger, GoogleRobotCredentials credentials,
-												  String packageName) throws NextAvailableVersionCodeFetcherException {
+												  String packageName) {
 		this.logger = logger;
 		this.credentials = credentials;
 		this.packageName = packageName;
+		this.requestExecutor = new ApiRequestExecutor(logger, credentials.getId());
+	}
+
+	public ApiCallStatistics getApiCallStatistics() {
+		return requestExecutor.getStatistics();
+	}
+
+	public int fetchNextAvailableVersionCode() throws NextAvailableVersionCodeFetcherException {
 		try {
-			httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-		} catch (GeneralSecurityException e) {
-			throw new NextAvailableVersionCodeFetcherException("Failed to create new Trusted Transport", e);
-		} catch (IOException e) {
-			throw new NextAvailableVersionCodeFetcherException("Failed to create new Trusted Transport", e);
+			return VersionCodeAllocator.getInstance().allocate(packageName, new VersionCodeAllocator.RemoteSync() {
+				public int fetchHighestVersionCode() {
+					return fetchHighestVersionCodeFromGooglePlay();
+				}
+			});
+		} finally {
+			logger.println(requestExecutor.getSummary());
 		}
 	}
 
-	public int fetchNextAvailableVersionCode() throws NextAvailableVersionCodeFetcherException {
+	private int fetchHighestVersionCodeFromGooglePlay() throws NextAvailableVersionCodeFetcherException {
 		createAndroidPublisherEdits();
 		createAppEdit();
 		int highestVersionCode = getHighestVersionCode();
-		deleteAppEdit();
-		return highestVersionCode + 1;
+		logger.println(String.format("Highest Versioncode on Google play is %d", highestVersionCode));
+		return highestVersionCode;
 	}
 
 	private void createAndroidPublisherEdits() throws NextAvailableVersionCodeFetcherException {
 		try {
-			final Credential credential = credentials.getGoogleCredential(new AndroidPublisherScopeRequirement());
-			edits = new AndroidPublisher.Builder(httpTransport, jsonFactory, credential)
-					.setApplicationName(APPLICATION_NAME)
-					.build()
-					.edits();
+			edits = AndroidPublisherClientCache.getInstance().getAndroidPublisher(credentials).edits();
 		} catch (GeneralSecurityException e) {
 			throw new NextAvailableVersionCodeFetcherException("Failed to create Android Publisher Edits", e);
+		} catch (IOException e) {
+			throw new NextAvailableVersionCodeFetcherException("Failed to create Android Publisher Edits", e);
 		}
 	}
 
 	private void createAppEdit() throws NextAvailableVersionCodeFetcherException {
 		try {
-			final AppEdit appEdit = edits.insert(packageName, null).execute();
+			final AppEdit appEdit =
+					AppEditPool.getInstance().getShared(credentials, edits, packageName, requestExecutor);
 			appEditId = appEdit.getId();
-			logger.println(String.format("Created App edit with id: %s", appEditId));
+			logger.println(String.format("Using shared App edit with id: %s", appEditId));
 		} catch (IOException e) {
 			throw new NextAvailableVersionCodeFetcherException("Failed to execute App edit insert request", e);
 		}
@@ -82,27 +83,13 @@ public class NextAvailableVersionCodeFetcherHelper {
 
 	private ApksListResponse getApksList() throws NextAvailableVersionCodeFetcherException {
 		try {
-			return edits.apks()
-					.list(packageName, appEditId)
-					.execute();
+			return requestExecutor.execute(edits.apks()
+					.list(packageName, appEditId));
 		} catch (IOException e) {
 			throw new NextAvailableVersionCodeFetcherException("Failed to execute list apks request", e);
 		}
 	}
 
-	private void deleteAppEdit() throws NextAvailableVersionCodeFetcherException {
-		try {
-			edits.delete(packageName, appEditId).execute();
-			logger.println(String.format("App edit with id %s has been deleted", appEditId));
-		} catch (GoogleJsonResponseException e) {
-			throw new NextAvailableVersionCodeFetcherException(
-					String.format("Failed to execute App edit delete request. Google play Api Message: '%s'",
-							e.getDetails().getMessage()), e);
-		} catch (IOException e) {
-			throw new NextAvailableVersionCodeFetcherException("Failed to execute App edit delete request", e);
-		}
-	}
-
 	public static class Builder {
 		private PrintStream logger;
 		private GoogleRobotCredentials credentials;
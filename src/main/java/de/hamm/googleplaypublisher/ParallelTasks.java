@@ -0,0 +1,78 @@
+package de.hamm.googleplaypublisher;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ParallelTasks<K, V> {
+	private final String name;
+	private final int maxParallelism;
+	private final Map<K, Callable<V>> tasks = new LinkedHashMap<K, Callable<V>>();
+
+	public ParallelTasks(String name, int maxParallelism) {
+		this.name = name;
+		this.maxParallelism = Math.max(maxParallelism, 1);
+	}
+
+	public ParallelTasks<K, V> add(K key, Callable<V> task) {
+		tasks.put(key, task);
+		return this;
+	}
+
+	public Result<K, V> run() throws InterruptedException {
+		Result<K, V> result = new Result<K, V>();
+		if (tasks.isEmpty()) {
+			return result;
+		}
+		if (tasks.size() == 1 || maxParallelism == 1) {
+			for (Map.Entry<K, Callable<V>> i : tasks.entrySet()) {
+				try {
+					result.values.put(i.getKey(), i.getValue().call());
+				} catch (Exception e) {
+					result.failures.put(i.getKey(), e);
+				}
+			}
+			return result;
+		}
+		ExecutorService executor =
+				Executors.newFixedThreadPool(Math.min(maxParallelism, tasks.size()), new NamedThreadFactory(name));
+		try {
+			Map<K, Future<V>> futures = new LinkedHashMap<K, Future<V>>();
+			for (Map.Entry<K, Callable<V>> i : tasks.entrySet()) {
+				futures.put(i.getKey(), executor.submit(i.getValue()));
+			}
+			for (Map.Entry<K, Future<V>> i : futures.entrySet()) {
+				try {
+					result.values.put(i.getKey(), i.getValue().get());
+				} catch (ExecutionException e) {
+					result.failures.put(i.getKey(), e.getCause());
+				}
+			}
+			return result;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public static class Result<K, V> {
+		private final Map<K, V> values = new LinkedHashMap<K, V>();
+		private final Map<K, Throwable> failures = new LinkedHashMap<K, Throwable>();
+
+		public Map<K, V> getValues() {
+			return Collections.unmodifiableMap(values);
+		}
+
+		public Map<K, Throwable> getFailures() {
+			return Collections.unmodifiableMap(failures);
+		}
+
+		public boolean isSuccessful() {
+			return failures.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+public class PrefixedPrintStream extends PrintStream {
+	public PrefixedPrintStream(PrintStream out, String prefix) {
+		super(new LinePrefixingOutputStream(out, prefix), true);
+	}
+
+	// Buffers each line and writes it with its prefix in one piece, so lines of concurrent streams never interleave
+	private static class LinePrefixingOutputStream extends OutputStream {
+		private final PrintStream out;
+		private final byte[] prefix;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		private LinePrefixingOutputStream(PrintStream out, String prefix) {
+			this.out = out;
+			this.prefix = prefix.getBytes();
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			line.write(b);
+			if (b == '\n') {
+				writeLine();
+			}
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				write(b[i]);
+			}
+		}
+
+		@Override
+		public synchronized void close() {
+			if (line.size() > 0) {
+				writeLine();
+			}
+		}
+
+		private void writeLine() {
+			byte[] bytes = line.toByteArray();
+			line.reset();
+			synchronized (out) {
+				out.write(prefix, 0, prefix.length);
+				out.write(bytes, 0, bytes.length);
+				out.flush();
+			}
+		}
+	}
+}
@@ -1,223 +1,643 @@
 package de.hamm.googleplaypublisher;
 
-import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.json.GoogleJsonError;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.http.HttpTransport;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.googleapis.media.MediaHttpUploaderProgressListener;
 import com.google.api.client.http.InputStreamContent;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.jackson.JacksonFactory;
 import com.google.api.services.androidpublisher.AndroidPublisher;
 import com.google.api.services.androidpublisher.model.Apk;
 import com.google.api.services.androidpublisher.model.ApkListing;
+import com.google.api.services.androidpublisher.model.ApksListResponse;
 import com.google.api.services.androidpublisher.model.AppEdit;
 import com.google.api.services.androidpublisher.model.Track;
+import com.google.api.services.androidpublisher.model.TracksListResponse;
 import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+import hudson.EnvVars;
 import hudson.FilePath;
-import net.erdfelt.android.apk.AndroidApk;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class PublishHelper {
 	private static final String MIME_TYPE_APK = "application/vnd.android.package-archive";
-	private static final String APPLICATION_NAME = "de.hamm.googleplaypublisher";
-	private final JsonFactory jsonFactory = new JacksonFactory();
-	private final HttpTransport httpTransport;
+	private static final long AGENT_UPLOAD_MIN_TOKEN_VALIDITY_SECONDS =
+			AccessTokenCache.BACKGROUND_REFRESH_MIN_VALIDITY_SECONDS;
+	private static final int MAX_PARALLEL_UPLOADS = 4;
+	private static final String AGENT_UPLOAD_OPERATION_NAME = "Edits.Apks.Upload (on node)";
+	private static final String VERSION_CODE_CONFLICT_REASON = "apkUpgradeVersionConflict";
+	private static final String VERSION_CODE_CONFLICT_MESSAGE = "version code that has already been used";
+	public static final int DEFAULT_RELEASE_NOTES_CONCURRENCY = 10;
+	private static final int MAX_PIPELINE_THREADS = 8;
+	private static final ExecutorService PIPELINE_EXECUTOR = createPipelineExecutor();
 	private final PrintStream logger;
 	private final GoogleRobotCredentials credentials;
-	private final FilePath apkFilePath;
+	private final List<FilePath> apkFilePaths;
 	private final de.hamm.googleplaypublisher.Track track;
 	private final List<ReleaseNotes> releaseNotes;
-	private String packageName;
+	private final GooglePlayPublisher.ResumableUpload resumableUpload;
+	private final boolean uploadOnAgent;
+	private final int releaseNotesConcurrency;
+	private final boolean batchRequests;
+	private final File previousJournalFile;
+	private final EnvVars envVars;
+	private final FilePath releaseNotesDirectory;
+	private final List<ExpandedReleaseNotes> expandedReleaseNotes;
+	private final Map<FilePath, ApkMetadata> apkMetadata = new LinkedHashMap<FilePath, ApkMetadata>();
+	private final String packageName;
+	private final ApiRequestExecutor requestExecutor;
+	private final PublishJournal journal;
+	private final Future<AndroidPublisher> androidPublisherFuture;
+	private AndroidPublisher androidPublisher;
 	private AndroidPublisher.Edits edits;
 	private String appEditId;
 
-	private PublishHelper(PrintStream logger, GoogleRobotCredentials credentials, FilePath apkFilePath,
-						  de.hamm.googleplaypublisher.Track track, List<ReleaseNotes> releaseNotes)
-			throws ReadPackageNameException, PublishApkException {
+	private PublishHelper(PrintStream logger, GoogleRobotCredentials credentials, List<FilePath> apkFilePaths,
+						  de.hamm.googleplaypublisher.Track track, List<ReleaseNotes> releaseNotes,
+						  GooglePlayPublisher.ResumableUpload resumableUpload, boolean uploadOnAgent,
+						  int releaseNotesConcurrency, boolean batchRequests, File journalFile,
+						  File previousJournalFile, EnvVars envVars, FilePath releaseNotesDirectory,
+						  Map<FilePath, ApkMetadata> preReadApkMetadata,
+						  List<ExpandedReleaseNotes> expandedReleaseNotes)
+			throws ReadPackageNameException {
 		this.logger = logger;
 		this.credentials = credentials;
-		this.apkFilePath = apkFilePath;
+		this.apkFilePaths = apkFilePaths;
 		this.track = track;
 		this.releaseNotes = releaseNotes;
+		this.resumableUpload = resumableUpload;
+		this.uploadOnAgent = uploadOnAgent;
+		this.releaseNotesConcurrency = releaseNotesConcurrency;
+		this.batchRequests = batchRequests;
+		this.previousJournalFile = previousJournalFile;
+		this.envVars = envVars;
+		this.releaseNotesDirectory = releaseNotesDirectory;
+		this.expandedReleaseNotes = expandedReleaseNotes;
+		this.requestExecutor = new ApiRequestExecutor(logger, credentials.getId());
+		androidPublisherFuture = PIPELINE_EXECUTOR.submit(new Callable<AndroidPublisher>() {
+			public AndroidPublisher call() throws GeneralSecurityException, IOException {
+				return AndroidPublisherClientCache.getInstance().getAndroidPublisher(credentials);
+			}
+		});
+		boolean initialized = false;
 		try {
-			httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-		} catch (GeneralSecurityException e) {
-			throw new PublishApkException("Failed to create new Trusted Transport", e);
-		} catch (IOException e) {
-			throw new PublishApkException("Failed to create new Trusted Transport", e);
+			apkMetadata.putAll(
+					preReadApkMetadata == null ? readAllApkMetadata(logger, apkFilePaths) : preReadApkMetadata);
+			packageName = getPackageName();
+			journal = new PublishJournal(journalFile, packageName, apkMetadata.values());
+			initialized = true;
+		} finally {
+			// publish() will never be called, so nobody else would cancel the client creation
+			if (!initialized) {
+				androidPublisherFuture.cancel(true);
+			}
 		}
+	}
+
+	private static ExecutorService createPipelineExecutor() {
+		// Bounded because every running build shares this pool; excess tasks wait in the queue
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PIPELINE_THREADS, MAX_PIPELINE_THREADS,
+				1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+				new NamedThreadFactory("Google play Publisher pipeline"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	static Map<FilePath, ApkMetadata> readAllApkMetadata(final PrintStream logger, List<FilePath> apkFilePaths)
+			throws ReadPackageNameException {
+		ParallelTasks<FilePath, ApkMetadata> reads =
+				new ParallelTasks<FilePath, ApkMetadata>("Google play Publisher APK metadata", MAX_PARALLEL_UPLOADS);
+		for (final FilePath i : apkFilePaths) {
+			reads.add(i, new Callable<ApkMetadata>() {
+				public ApkMetadata call() throws ReadPackageNameException {
+					return readApkMetadata(logger, i);
+				}
+			});
+		}
+		final ParallelTasks.Result<FilePath, ApkMetadata> result;
 		try {
-			AndroidApk androidApk = new AndroidApk(apkFilePath.read());
-			packageName = androidApk.getPackageName();
+			result = reads.run();
+		} catch (InterruptedException e) {
+			throw new ReadPackageNameException("Interrupted while reading package names", e);
+		}
+		if (!result.isSuccessful()) {
+			Throwable failure = result.getFailures().values().iterator().next();
+			if (failure instanceof ReadPackageNameException) {
+				throw (ReadPackageNameException) failure;
+			}
+			throw new ReadPackageNameException(failure.getMessage(), failure);
+		}
+		return result.getValues();
+	}
+
+	private static ApkMetadata readApkMetadata(PrintStream logger, FilePath apkFilePath)
+			throws ReadPackageNameException {
+		final ApkMetadata metadata;
+		try {
+			metadata = apkFilePath.act(new ReadApkMetadataCallable());
 		} catch (FileNotFoundException e) {
 			throw new ReadPackageNameException(
 					String.format("Could not find file '%s'", apkFilePath), e);
 		} catch (IOException e) {
 			throw new ReadPackageNameException(
 					String.format("Failed to read package name from file '%s'", apkFilePath), e);
+		} catch (InterruptedException e) {
+			throw new ReadPackageNameException(
+					String.format("Interrupted while reading package name from file '%s'", apkFilePath), e);
 		}
+		logger.println(String.format(
+				"Read package name '%s', version code %d and version name '%s' from file '%s' (SHA-1: %s)",
+				metadata.getPackageName(), metadata.getVersionCode(), metadata.getVersionName(), apkFilePath,
+				metadata.getSha1()));
+		return metadata;
 	}
 
-	public void publish() throws PublishApkException {
-		createAndroidPublisherEdits();
-		createAppEdit();
-		final Apk apk = uploadApk();
-		updateTracks(apk.getVersionCode());
-		publishAllReleaseNotes(apk.getVersionCode());
-		commitAppEdit();
+	private String getPackageName() throws ReadPackageNameException {
+		Set<String> packageNames = new LinkedHashSet<String>();
+		for (ApkMetadata i : apkMetadata.values()) {
+			packageNames.add(i.getPackageName());
+		}
+		if (packageNames.size() != 1) {
+			throw new ReadPackageNameException(String.format("APK files %s have different package names %s, " +
+					"enable Multiple Packages to publish each package separately",
+					Arrays.toString(apkFilePaths.toArray()), Arrays.toString(packageNames.toArray())), null);
+		}
+		return packageNames.iterator().next();
 	}
 
-	private void createAndroidPublisherEdits() throws PublishApkException {
+	public ApiCallStatistics getApiCallStatistics() {
+		return requestExecutor.getStatistics();
+	}
+
+	// Returns false if the publish was superseded by a publish of a higher version code and skipped
+	public boolean publish() throws PublishApkException {
+		Future<List<ExpandedReleaseNotes>> releaseNotesFuture = null;
+		Future<Map<String, Track>> tracksFuture = null;
 		try {
-			final Credential credential = credentials.getGoogleCredential(new AndroidPublisherScopeRequirement());
-			edits = new AndroidPublisher.Builder(httpTransport, jsonFactory, credential)
-					.setApplicationName(APPLICATION_NAME)
-					.build()
-					.edits();
-		} catch (GeneralSecurityException e) {
-			throw new PublishApkException("Failed to create Android Publisher Edits", e);
+			PublishScheduler.Slot slot = acquirePublishSlot();
+			if (slot == null) {
+				return false;
+			}
+			try {
+				releaseNotesFuture = PIPELINE_EXECUTOR.submit(new Callable<List<ExpandedReleaseNotes>>() {
+					public List<ExpandedReleaseNotes> call() throws PublishApkException {
+						return expandReleaseNotes();
+					}
+				});
+				createAndroidPublisherEdits();
+				if (!resumeAppEdit()) {
+					createAppEdit();
+				}
+				tracksFuture = PIPELINE_EXECUTOR.submit(new Callable<Map<String, Track>>() {
+					public Map<String, Track> call() throws PublishApkException {
+						return listTracks();
+					}
+				});
+				final List<Integer> versionCodes = uploadAllApks();
+				updateTracks(versionCodes, await(tracksFuture, "Failed to execute list tracks request"));
+				publishAllReleaseNotes(versionCodes, await(releaseNotesFuture, "Failed to expand Release Notes"));
+				commitAppEdit();
+				return true;
+			} finally {
+				slot.release();
+				logger.println(requestExecutor.getSummary());
+				logger.println(requestExecutor.getStatistics().getSummary());
+			}
+		} finally {
+			// Completed futures ignore the cancellation, pending ones must not hold pipeline threads after a failure
+			cancel(androidPublisherFuture);
+			cancel(releaseNotesFuture);
+			cancel(tracksFuture);
+		}
+	}
+
+	private static void cancel(Future<?> future) {
+		if (future != null) {
+			future.cancel(true);
+		}
+	}
+
+	private PublishScheduler.Slot acquirePublishSlot() throws PublishApkException {
+		int highestVersionCode = 0;
+		for (ApkMetadata i : apkMetadata.values()) {
+			highestVersionCode = Math.max(highestVersionCode, i.getVersionCode());
+		}
+		try {
+			return PublishScheduler.getInstance().acquire(packageName, track.getName(), highestVersionCode, logger);
+		} catch (InterruptedException e) {
+			throw new PublishApkException(
+					String.format("Interrupted while waiting for other publishes of package '%s'", packageName), e);
+		}
+	}
+
+	private static <T> T await(Future<T> future, String failureMessage) throws PublishApkException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			throw new PublishApkException(failureMessage, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof PublishApkException) {
+				throw (PublishApkException) e.getCause();
+			}
+			throw new PublishApkException(failureMessage, e.getCause());
+		}
+	}
+
+	private List<ExpandedReleaseNotes> expandReleaseNotes() throws PublishApkException {
+		if (expandedReleaseNotes != null) {
+			return expandedReleaseNotes;
+		}
+		return expandReleaseNotes(logger, releaseNotes, envVars, releaseNotesDirectory);
+	}
+
+	static List<ExpandedReleaseNotes> expandReleaseNotes(PrintStream logger, List<ReleaseNotes> releaseNotes,
+														 EnvVars envVars, FilePath releaseNotesDirectory)
+			throws PublishApkException {
+		Map<String, ExpandedReleaseNotes> expandedReleaseNotes = new LinkedHashMap<String, ExpandedReleaseNotes>();
+		for (ExpandedReleaseNotes i : readReleaseNotesDirectory(logger, releaseNotesDirectory)) {
+			expandedReleaseNotes.put(i.getLanguage(), i);
+		}
+		if (releaseNotes != null) {
+			for (ReleaseNotes i : releaseNotes) {
+				ExpandedReleaseNotes expanded = i.expand(envVars == null ? new EnvVars() : envVars);
+				if (expandedReleaseNotes.containsKey(expanded.getLanguage())) {
+					logger.println(String.format("Release Notes in Language '%s' are configured in the job, " +
+							"ignoring the file from the Release Notes directory", expanded.getLanguage()));
+				}
+				expandedReleaseNotes.put(expanded.getLanguage(), expanded);
+			}
+		}
+		return new ArrayList<ExpandedReleaseNotes>(expandedReleaseNotes.values());
+	}
+
+	private static List<ExpandedReleaseNotes> readReleaseNotesDirectory(PrintStream logger,
+																		FilePath releaseNotesDirectory)
+			throws PublishApkException {
+		if (releaseNotesDirectory == null) {
+			return Collections.emptyList();
+		}
+		try {
+			ReadReleaseNotesDirectoryCallable.Result result =
+					releaseNotesDirectory.act(new ReadReleaseNotesDirectoryCallable());
+			for (String i : result.getWarnings()) {
+				logger.println(i);
+			}
+			logger.println(String.format("Read Release Notes in %d Languages from directory '%s'",
+					result.getReleaseNotes().size(), releaseNotesDirectory.getRemote()));
+			return result.getReleaseNotes();
+		} catch (IOException e) {
+			throw new PublishApkException(String.format("Failed to read Release Notes from directory '%s'",
+					releaseNotesDirectory.getRemote()), e);
+		} catch (InterruptedException e) {
+			throw new PublishApkException(String.format("Interrupted while reading Release Notes from directory '%s'",
+					releaseNotesDirectory.getRemote()), e);
 		}
 	}
 
+	private void createAndroidPublisherEdits() throws PublishApkException {
+		androidPublisher = await(androidPublisherFuture, "Failed to create Android Publisher Edits");
+		edits = androidPublisher.edits();
+	}
+
 	private void createAppEdit() throws PublishApkException {
 		try {
-			final AppEdit appEdit = edits.insert(packageName, null).execute();
+			final AppEdit appEdit = AppEditPool.getInstance().take(credentials, edits, packageName, requestExecutor);
 			appEditId = appEdit.getId();
-			logger.println(String.format("Created App edit with id: %s", appEditId));
+			journal.setAppEdit(appEditId, appEdit.getExpiryTimeSeconds());
+			logger.println(String.format("Using App edit with id: %s", appEditId));
 		} catch (IOException e) {
 			throw new PublishApkException("Failed to execute insert request", e);
 		}
 	}
 
-	private Apk uploadApk() throws PublishApkException {
+	private boolean resumeAppEdit() {
+		PublishJournal previousJournal = PublishJournal.load(previousJournalFile);
+		if (previousJournal == null || !previousJournal.isResumableBy(journal)) {
+			return false;
+		}
 		try {
-			Apk apk = edits.apks()
-					.upload(packageName, appEditId, new InputStreamContent(MIME_TYPE_APK, apkFilePath.read()))
-					.execute();
-			logger.println(String.format("Version code %d has been uploaded", apk.getVersionCode()));
-			return apk;
+			AppEdit appEdit = requestExecutor.execute(edits.get(packageName, previousJournal.getAppEditId()));
+			appEditId = appEdit.getId();
 		} catch (IOException e) {
-			throw new PublishApkException("Failed to execute upload request", e);
+			logger.println(String.format("App edit with id %s of the previous build can no longer be resumed: %s",
+					previousJournal.getAppEditId(), e.getMessage()));
+			return false;
 		}
+		journal.resumeFrom(previousJournal);
+		logger.println(String.format("Resuming App edit with id %s of the previous build", appEditId));
+		return true;
 	}
 
-	private void updateTracks(Integer currentVersionCode) throws PublishApkException {
-		publishVersion(currentVersionCode);
-		unpublishLowerVersionsInLowerTracks(currentVersionCode);
-		unpublishAllVersionsInLowerTracks();
+	private List<Integer> uploadAllApks() throws PublishApkException {
+		final Map<String, Integer> uploadedVersionCodes = listUploadedVersionCodes();
+		ParallelTasks<FilePath, Integer> uploads =
+				new ParallelTasks<FilePath, Integer>("Google play Publisher upload", MAX_PARALLEL_UPLOADS);
+		for (final FilePath i : apkFilePaths) {
+			final ApkMetadata metadata = apkMetadata.get(i);
+			final Integer uploadedVersionCode = journal.getVersionCode(metadata) != null
+					? journal.getVersionCode(metadata) : uploadedVersionCodes.get(metadata.getSha1());
+			uploads.add(i, new Callable<Integer>() {
+				public Integer call() throws PublishApkException {
+					if (uploadedVersionCode != null) {
+						logger.println(String.format("APK file '%s' has already been uploaded as version code %d",
+								i, uploadedVersionCode));
+						return uploadedVersionCode;
+					}
+					int versionCode = uploadOnAgent ? uploadApkOnAgent(i) : uploadApk(i).getVersionCode();
+					journal.setVersionCode(metadata, versionCode);
+					return versionCode;
+				}
+			});
+		}
+		final ParallelTasks.Result<FilePath, Integer> result;
+		try {
+			result = uploads.run();
+		} catch (InterruptedException e) {
+			throw new PublishApkException("Interrupted while executing upload requests", e);
+		}
+		if (!result.isSuccessful()) {
+			Map.Entry<FilePath, Throwable> failure = result.getFailures().entrySet().iterator().next();
+			throw new PublishApkException(String.format("Failed to upload APK files %s: %s",
+					Arrays.toString(result.getFailures().keySet().toArray()), failure.getValue().getMessage()),
+					failure.getValue());
+		}
+		return new ArrayList<Integer>(result.getValues().values());
 	}
 
-	private void publishVersion(Integer currentVersionCode) throws PublishApkException {
+	private Map<String, Integer> listUploadedVersionCodes() throws PublishApkException {
 		try {
-			Track updatedTrack = edits.tracks().update(packageName, appEditId, track.getName(),
-					track.createApiTrack().setVersionCodes(Collections.singletonList(currentVersionCode))).execute();
-			logger.println(String.format("Version codes %s have been published in Track '%s'",
-					Arrays.toString(updatedTrack.getVersionCodes().toArray()), updatedTrack.getTrack()));
+			ApksListResponse response = requestExecutor.execute(edits.apks().list(packageName, appEditId));
+			Map<String, Integer> versionCodes = new HashMap<String, Integer>();
+			if (response.getApks() != null) {
+				for (Apk i : response.getApks()) {
+					if (i.getBinary() != null && i.getBinary().getSha1() != null) {
+						versionCodes.put(i.getBinary().getSha1().toLowerCase(Locale.ENGLISH), i.getVersionCode());
+					}
+				}
+			}
+			return versionCodes;
 		} catch (IOException e) {
-			throw new PublishApkException(String.format("Failed to publish Version codes %s in Track '%s'",
-					Arrays.toString(Collections.singletonList(currentVersionCode).toArray()), track.getName()), e);
+			throw new PublishApkException("Failed to execute list apks request", e);
 		}
 	}
 
-	private void unpublishLowerVersionsInLowerTracks(Integer currentVersionCode) throws PublishApkException {
-		for (String i : track.getTracksWhereToUnpublishLowerVersions()) {
-			unpublishLowerVersionsInTrack(currentVersionCode, i);
+	private Apk uploadApk(FilePath apkFilePath) throws PublishApkException {
+		try {
+			InputStream inputStream = apkFilePath.read();
+			try {
+				InputStreamContent apkContent = new InputStreamContent(MIME_TYPE_APK, inputStream)
+						.setLength(apkMetadata.get(apkFilePath).getSize());
+				AndroidPublisher.Edits.Apks.Upload upload;
+				if (resumableUpload == null) {
+					upload = edits.apks().upload(packageName, appEditId, apkContent);
+				} else {
+					upload = createResumableUpload(apkFilePath, apkContent);
+				}
+				long startNanos = System.nanoTime();
+				Apk apk = requestExecutor.executeOnce(upload);
+				requestExecutor.recordUpload(apkMetadata.get(apkFilePath).getSize(), startNanos);
+				logger.println(String.format("Version code %d has been uploaded", apk.getVersionCode()));
+				return apk;
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			invalidateVersionCodesOnConflict(e);
+			throw new PublishApkException("Failed to execute upload request", e);
 		}
 	}
 
-	private void unpublishAllVersionsInLowerTracks() throws PublishApkException {
-		for (String i : track.getTracksWhereToUnpublishAllVersions()) {
-			unpublishAllVersionsInTrack(i);
+	private Integer uploadApkOnAgent(FilePath apkFilePath) throws PublishApkException {
+		try {
+			String accessToken = AccessTokenCache.getInstance().getAccessToken(credentials,
+					new AndroidPublisherScopeRequirement(), AGENT_UPLOAD_MIN_TOKEN_VALIDITY_SECONDS);
+			logger.println(String.format("Uploading %d bytes on the node holding file '%s'",
+					apkMetadata.get(apkFilePath).getSize(), apkFilePath));
+			requestExecutor.acquire(1);
+			long startNanos = System.nanoTime();
+			boolean success = false;
+			final Integer versionCode;
+			try {
+				versionCode =
+						apkFilePath.act(new UploadApkCallable(accessToken, packageName, appEditId, resumableUpload));
+				success = true;
+			} finally {
+				requestExecutor.record(AGENT_UPLOAD_OPERATION_NAME, startNanos, success);
+			}
+			requestExecutor.recordUpload(apkMetadata.get(apkFilePath).getSize(), startNanos);
+			logger.println(String.format("Version code %d has been uploaded", versionCode));
+			return versionCode;
+		} catch (GeneralSecurityException e) {
+			throw new PublishApkException("Failed to get access token for upload", e);
+		} catch (IOException e) {
+			invalidateVersionCodesOnConflict(e);
+			throw new PublishApkException("Failed to execute upload request", e);
+		} catch (InterruptedException e) {
+			throw new PublishApkException("Interrupted while executing upload request", e);
 		}
 	}
 
-	private void unpublishLowerVersionsInTrack(Integer currentVersionCode, String trackName)
-			throws PublishApkException {
+	private AndroidPublisher.Edits.Apks.Upload createResumableUpload(final FilePath apkFilePath,
+																	 InputStreamContent apkContent)
+			throws IOException {
+		final long size = apkMetadata.get(apkFilePath).getSize();
+		final AndroidPublisher androidPublisher;
 		try {
-			Track trackToUpdate = edits.tracks().get(packageName, appEditId, trackName).execute();
-			List<Integer> versionCodes = trackToUpdate.getVersionCodes();
-			if (versionCodes != null) {
-				List<Integer> higherVersionCodes = getHigherVersionCodes(currentVersionCode, versionCodes);
-				List<Integer> lowerVersionCodes = getLowerVersionCodes(currentVersionCode, versionCodes);
-				if (!versionCodes.equals(higherVersionCodes)) {
-					try {
-						edits.tracks().update(packageName, appEditId, trackName,
-								trackToUpdate.setVersionCodes(higherVersionCodes)).execute();
-						logger.println(String.format("Version codes %s have been unpublished from Track '%s'",
-								Arrays.toString(lowerVersionCodes.toArray()), trackName));
-					} catch (IOException e) {
-						throw new PublishApkException(
-								String.format("Failed to unpublish Version codes %s in Track '%s'",
-										Arrays.toString(lowerVersionCodes.toArray()), track.getName()), e);
+			androidPublisher = AndroidPublisherClientCache.getInstance()
+					.createResumableUploadClient(credentials, resumableUpload.getMaxResumeAttempts());
+		} catch (GeneralSecurityException e) {
+			throw new PublishApkException("Failed to create Android Publisher for resumable upload", e);
+		}
+		AndroidPublisher.Edits.Apks.Upload upload =
+				androidPublisher.edits().apks().upload(packageName, appEditId, apkContent);
+		upload.getMediaHttpUploader()
+				.setDirectUploadEnabled(false)
+				.setChunkSize(resumableUpload.getChunkSizeInBytes())
+				.setProgressListener(new MediaHttpUploaderProgressListener() {
+					public void progressChanged(MediaHttpUploader uploader) throws IOException {
+						if (uploader.getUploadState() == MediaHttpUploader.UploadState.MEDIA_IN_PROGRESS) {
+							logger.println(String.format("Uploaded %d of %d bytes of file '%s'",
+									uploader.getNumBytesUploaded(), size, apkFilePath));
+						}
 					}
+				});
+		logger.println(String.format("Uploading %d bytes of file '%s' in chunks of %d bytes", size, apkFilePath,
+				resumableUpload.getChunkSizeInBytes()));
+		return upload;
+	}
+
+	private void updateTracks(List<Integer> versionCodes, Map<String, Track> currentTracks)
+			throws PublishApkException {
+		String tracks = String.format("%s %s %s", track.getName(), track.createApiTrack().getUserFraction(),
+				versionCodes);
+		if (journal.isTracksUpdated(tracks)) {
+			logger.println("Tracks have already been updated in this App edit");
+			return;
+		}
+		TrackUpdatePlan plan = new TrackUpdatePlan(track, versionCodes, currentTracks);
+		logger.println(plan.getSummary());
+		// Never batched: the requests of a batch may be executed in any order, but the target Track has to be
+		// updated before lower version codes are unpublished from the other Tracks
+		for (TrackUpdatePlan.Update i : plan.getUpdates()) {
+			executeTrackUpdate(i);
+		}
+		journal.setTracksUpdated(tracks);
+	}
+
+	private Map<String, Track> listTracks() throws PublishApkException {
+		try {
+			TracksListResponse response = requestExecutor.execute(edits.tracks().list(packageName, appEditId));
+			Map<String, Track> tracks = new HashMap<String, Track>();
+			if (response.getTracks() != null) {
+				for (Track i : response.getTracks()) {
+					tracks.put(i.getTrack(), i);
 				}
 			}
+			return tracks;
 		} catch (IOException e) {
-			// No published versions in track
+			throw new PublishApkException("Failed to execute list tracks request", e);
 		}
 	}
 
-	private List<Integer> getHigherVersionCodes(Integer currentVersionCode, List<Integer> versionCodes) {
-		List<Integer> higherVersionCodes = new ArrayList<Integer>();
-		for (Integer i : versionCodes) {
-			if (i > currentVersionCode) {
-				higherVersionCodes.add(i);
-			}
+	private void executeTrackUpdate(TrackUpdatePlan.Update update) throws PublishApkException {
+		try {
+			requestExecutor.execute(
+					edits.tracks().update(packageName, appEditId, update.getTrackName(), update.getApiTrack()));
+			logger.println(update.getSuccessMessage());
+		} catch (IOException e) {
+			throw new PublishApkException(update.getFailureMessage(), e);
 		}
-		return higherVersionCodes;
 	}
 
-	private List<Integer> getLowerVersionCodes(Integer currentVersionCode, List<Integer> versionCodes) {
-		List<Integer> lowerVersionCodes = new ArrayList<Integer>();
-		for (Integer i : versionCodes) {
-			if (i <= currentVersionCode) {
-				lowerVersionCodes.add(i);
+	private void publishAllReleaseNotes(List<Integer> versionCodes, List<ExpandedReleaseNotes> expandedReleaseNotes)
+			throws PublishApkException {
+		if (expandedReleaseNotes.isEmpty()) {
+			return;
+		}
+		if (batchRequests) {
+			publishAllReleaseNotesInBatch(versionCodes, expandedReleaseNotes);
+			return;
+		}
+		ParallelTasks<String, Void> updates =
+				new ParallelTasks<String, Void>("Google play Publisher release notes", releaseNotesConcurrency);
+		int updateCount = 0;
+		for (final Integer i : versionCodes) {
+			for (final ExpandedReleaseNotes j : expandedReleaseNotes) {
+				if (isReleaseNotesPublished(i, j)) {
+					continue;
+				}
+				updateCount++;
+				updates.add(String.format("%s/%d", j.getLanguage(), i), new Callable<Void>() {
+					public Void call() throws PublishApkException {
+						publishReleaseNotes(i, j);
+						return null;
+					}
+				});
+			}
+		}
+		final ParallelTasks.Result<String, Void> result;
+		try {
+			result = updates.run();
+		} catch (InterruptedException e) {
+			throw new PublishApkException("Interrupted while publishing Release Notes", e);
+		}
+		if (!result.isSuccessful()) {
+			List<String> messages = new ArrayList<String>();
+			for (Throwable i : result.getFailures().values()) {
+				messages.add(i.getMessage());
 			}
+			throw new PublishApkException(String.format("Failed to publish %d of %d Release Notes: %s",
+					result.getFailures().size(), updateCount, joinMessages(messages)),
+					result.getFailures().values().iterator().next());
 		}
-		return lowerVersionCodes;
 	}
 
-	private void unpublishAllVersionsInTrack(String trackName) throws PublishApkException {
+	private void publishAllReleaseNotesInBatch(List<Integer> versionCodes,
+											   List<ExpandedReleaseNotes> expandedReleaseNotes)
+			throws PublishApkException {
+		BatchExecution updates = new BatchExecution(androidPublisher, requestExecutor);
 		try {
-			Track trackToUpdate = edits.tracks().get(packageName, appEditId, trackName).execute();
-			List<Integer> versionCodes = trackToUpdate.getVersionCodes();
-			if (versionCodes != null && !versionCodes.isEmpty()) {
-				trackToUpdate.setVersionCodes(null);
-				try {
-					edits.tracks().update(packageName, appEditId, trackName, trackToUpdate).execute();
-					logger.println(String.format("Version codes %s have been unpublished from Track '%s'",
-							Arrays.toString(versionCodes.toArray()), trackName));
-				} catch (IOException e) {
-					throw new PublishApkException(String.format("Failed to unpublish Version codes %s in Track '%s'",
-							Arrays.toString(versionCodes.toArray()), track.getName()), e);
+			for (final Integer i : versionCodes) {
+				for (final ExpandedReleaseNotes j : expandedReleaseNotes) {
+					if (isReleaseNotesPublished(i, j)) {
+						continue;
+					}
+					updates.queue(edits.apklistings().update(packageName, appEditId, i, j.getLanguage(),
+							new ApkListing().setLanguage(j.getLanguage())
+									.setRecentChanges(j.getReleaseNotes())),
+							new BatchExecution.Callback<ApkListing>(String.format(
+									"Failed to publish Release Notes in Language '%s' for Version code '%s'",
+									j.getLanguage(), i)) {
+								@Override
+								public void onSuccess(ApkListing result) {
+									journal.setListingPublished(i, j.getLanguage(), j.getReleaseNotes());
+									logger.println(String.format(
+											"Release Notes in Language '%s' for Version code '%s' have been published",
+											j.getLanguage(), i));
+								}
+							});
 				}
 			}
+			updates.execute();
 		} catch (IOException e) {
-			// No published versions in track
+			throw new PublishApkException("Failed to execute batch request for Release Notes", e);
+		}
+		if (!updates.getFailures().isEmpty()) {
+			throw new PublishApkException(String.format("Failed to publish %d of %d Release Notes: %s",
+					updates.getFailures().size(), updates.size(),
+					joinMessages(updates.getFailures())), null);
 		}
 	}
 
-	private void publishAllReleaseNotes(Integer versionCode) throws PublishApkException {
-		if (releaseNotes != null) {
-			for (ReleaseNotes i : releaseNotes) {
-				publishReleaseNotes(versionCode, i);
-			}
+	private static String joinMessages(List<String> messages) {
+		StringBuilder joinedMessages = new StringBuilder();
+		for (String i : messages) {
+			joinedMessages.append(joinedMessages.length() == 0 ? "" : "; ").append(i);
+		}
+		return joinedMessages.toString();
+	}
+
+	private boolean isReleaseNotesPublished(Integer versionCode, ExpandedReleaseNotes releaseNotes) {
+		if (!journal.isListingPublished(versionCode, releaseNotes.getLanguage(),
+				releaseNotes.getReleaseNotes())) {
+			return false;
 		}
+		logger.println(String.format(
+				"Release Notes in Language '%s' for Version code '%s' have already been published",
+				releaseNotes.getLanguage(), versionCode));
+		return true;
 	}
 
-	private void publishReleaseNotes(Integer versionCode, ReleaseNotes releaseNotes) throws PublishApkException {
+	private void publishReleaseNotes(Integer versionCode, ExpandedReleaseNotes releaseNotes)
+			throws PublishApkException {
 		try {
-			edits.apklistings().update(packageName, appEditId, versionCode, releaseNotes.getLanguage(),
-					new ApkListing().setLanguage(releaseNotes.getLanguage())
-							.setRecentChanges(releaseNotes.getExpandedReleaseNotes())).execute();
+			requestExecutor.execute(edits.apklistings().update(packageName, appEditId, versionCode,
+					releaseNotes.getLanguage(), new ApkListing().setLanguage(releaseNotes.getLanguage())
+							.setRecentChanges(releaseNotes.getReleaseNotes())));
+			journal.setListingPublished(versionCode, releaseNotes.getLanguage(),
+					releaseNotes.getReleaseNotes());
 			logger.println(String.format("Release Notes in Language '%s' for Version code '%s' have been published",
 					releaseNotes.getLanguage(), versionCode));
 		} catch (IOException e) {
@@ -229,7 +649,8 @@ public class PublishHelper {
 
 	private void commitAppEdit() throws PublishApkException {
 		try {
-			AppEdit appEdit = edits.commit(packageName, appEditId).execute();
+			AppEdit appEdit = requestExecutor.execute(edits.commit(packageName, appEditId));
+			journal.setCommitted();
 			logger.println(String.format("App edit with id %s has been comitted", appEdit.getId()));
 		} catch (GoogleJsonResponseException e) {
 			throw new PublishApkException(
@@ -237,9 +658,38 @@ public class PublishHelper {
 							e.getDetails().getMessage()), e);
 		} catch (IOException e) {
 			throw new PublishApkException("Failed to execute commit request", e);
+		} finally {
+			AppEditPool.getInstance().invalidate(credentials.getId(), packageName);
+			VersionCodeAllocator.getInstance().invalidate(packageName);
 		}
 	}
 
+	// The version code counter is behind Google play, fetch the highest version code again on the next allocation
+	private void invalidateVersionCodesOnConflict(Throwable e) {
+		for (Throwable i = e; i != null; i = i.getCause()) {
+			if (i instanceof GoogleJsonResponseException && isVersionCodeConflict((GoogleJsonResponseException) i)) {
+				VersionCodeAllocator.getInstance().invalidate(packageName);
+				return;
+			}
+		}
+	}
+
+	private static boolean isVersionCodeConflict(GoogleJsonResponseException e) {
+		GoogleJsonError details = e.getDetails();
+		if (details == null) {
+			return false;
+		}
+		if (details.getErrors() != null) {
+			for (GoogleJsonError.ErrorInfo i : details.getErrors()) {
+				if (VERSION_CODE_CONFLICT_REASON.equals(i.getReason())) {
+					return true;
+				}
+			}
+		}
+		return details.getMessage() != null
+				&& details.getMessage().toLowerCase(Locale.ENGLISH).contains(VERSION_CODE_CONFLICT_MESSAGE);
+	}
+
 	public static class PublishApkException extends RuntimeException {
 		public PublishApkException(String message, Throwable cause) {
 			super(message, cause);
@@ -255,9 +705,19 @@ public class PublishHelper {
 	public static class Builder {
 		private PrintStream logger;
 		private GoogleRobotCredentials credentials;
-		private FilePath apkFilePath;
+		private List<FilePath> apkFilePaths;
 		private de.hamm.googleplaypublisher.Track track;
 		private List<ReleaseNotes> releaseNotes;
+		private GooglePlayPublisher.ResumableUpload resumableUpload;
+		private boolean uploadOnAgent;
+		private int releaseNotesConcurrency = DEFAULT_RELEASE_NOTES_CONCURRENCY;
+		private boolean batchRequests;
+		private File journalFile;
+		private File previousJournalFile;
+		private EnvVars envVars;
+		private FilePath releaseNotesDirectory;
+		private Map<FilePath, ApkMetadata> apkMetadata;
+		private List<ExpandedReleaseNotes> expandedReleaseNotes;
 
 		public Builder setLogger(PrintStream logger) {
 			this.logger = logger;
@@ -270,7 +730,12 @@ public class PublishHelper {
 		}
 
 		public Builder setApkFilePath(FilePath apkFilePath) {
-			this.apkFilePath = apkFilePath;
+			this.apkFilePaths = Collections.singletonList(apkFilePath);
+			return this;
+		}
+
+		public Builder setApkFilePaths(List<FilePath> apkFilePaths) {
+			this.apkFilePaths = apkFilePaths;
 			return this;
 		}
 
@@ -284,8 +749,62 @@ public class PublishHelper {
 			return this;
 		}
 
+		public Builder setResumableUpload(GooglePlayPublisher.ResumableUpload resumableUpload) {
+			this.resumableUpload = resumableUpload;
+			return this;
+		}
+
+		public Builder setUploadOnAgent(boolean uploadOnAgent) {
+			this.uploadOnAgent = uploadOnAgent;
+			return this;
+		}
+
+		public Builder setReleaseNotesConcurrency(int releaseNotesConcurrency) {
+			this.releaseNotesConcurrency = releaseNotesConcurrency;
+			return this;
+		}
+
+		public Builder setBatchRequests(boolean batchRequests) {
+			this.batchRequests = batchRequests;
+			return this;
+		}
+
+		public Builder setJournalFile(File journalFile) {
+			this.journalFile = journalFile;
+			return this;
+		}
+
+		public Builder setPreviousJournalFile(File previousJournalFile) {
+			this.previousJournalFile = previousJournalFile;
+			return this;
+		}
+
+		public Builder setEnvVars(EnvVars envVars) {
+			this.envVars = envVars;
+			return this;
+		}
+
+		public Builder setReleaseNotesDirectory(FilePath releaseNotesDirectory) {
+			this.releaseNotesDirectory = releaseNotesDirectory;
+			return this;
+		}
+
+		public Builder setApkMetadata(Map<FilePath, ApkMetadata> apkMetadata) {
+			this.apkMetadata = apkMetadata;
+			return this;
+		}
+
+		// Reads and expands the Release Notes once for all PublishHelpers created by this builder
+		public Builder expandReleaseNotes() throws PublishApkException {
+			this.expandedReleaseNotes =
+					PublishHelper.expandReleaseNotes(logger, releaseNotes, envVars, releaseNotesDirectory);
+			return this;
+		}
+
 		public PublishHelper createPublishHelper() throws ReadPackageNameException {
-			return new PublishHelper(logger, credentials, apkFilePath, track, releaseNotes);
+			return new PublishHelper(logger, credentials, apkFilePaths, track, releaseNotes, resumableUpload,
+					uploadOnAgent, releaseNotesConcurrency, batchRequests, journalFile, previousJournalFile,
+					envVars, releaseNotesDirectory, apkMetadata, expandedReleaseNotes);
 		}
 	}
 }
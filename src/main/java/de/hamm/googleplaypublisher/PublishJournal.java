@@ -0,0 +1,187 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.Util;
+import hudson.util.AtomicFileWriter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class PublishJournal {
+	private static final Log LOG = LogFactory.getLog(PublishJournal.class);
+	private static final String FILE_NAME = "google-play-publisher-journal.properties";
+	private static final String PACKAGE_FILE_NAME = "google-play-publisher-journal-%s.properties";
+	private static final long MIN_REMAINING_VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final String PACKAGE_NAME = "packageName";
+	private static final String APK_SHA1S = "apkSha1s";
+	private static final String APP_EDIT_ID = "appEditId";
+	private static final String APP_EDIT_EXPIRY_TIME_SECONDS = "appEditExpiryTimeSeconds";
+	private static final String VERSION_CODE_PREFIX = "versionCode.";
+	private static final String TRACKS_UPDATED = "tracksUpdated";
+	private static final String LISTING_PREFIX = "listing.";
+	private static final String COMMITTED = "committed";
+	private final File file;
+	private final Properties properties;
+
+	private PublishJournal(File file, Properties properties) {
+		this.file = file;
+		this.properties = properties;
+	}
+
+	public PublishJournal(File file, String packageName, Collection<ApkMetadata> apks) {
+		this(file, new Properties());
+		properties.setProperty(PACKAGE_NAME, packageName);
+		properties.setProperty(APK_SHA1S, getApkSha1s(apks));
+	}
+
+	public static File getFile(File buildDirectory) {
+		return new File(buildDirectory, FILE_NAME);
+	}
+
+	public static File getFile(File buildDirectory, String packageName) {
+		return new File(buildDirectory, String.format(PACKAGE_FILE_NAME, packageName));
+	}
+
+	public static PublishJournal load(File file) {
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try {
+			InputStream inputStream = new FileInputStream(file);
+			try {
+				properties.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			LOG.warn(String.format("Failed to load publish journal '%s'", file), e);
+			return null;
+		}
+		return new PublishJournal(file, properties);
+	}
+
+	public synchronized boolean isResumableBy(PublishJournal journal) {
+		if (getAppEditId() == null || Boolean.parseBoolean(properties.getProperty(COMMITTED))
+				|| !properties.getProperty(PACKAGE_NAME, "").equals(journal.properties.getProperty(PACKAGE_NAME))
+				|| !properties.getProperty(APK_SHA1S, "").equals(journal.properties.getProperty(APK_SHA1S))) {
+			return false;
+		}
+		try {
+			long expiryTimeMillis =
+					TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty(APP_EDIT_EXPIRY_TIME_SECONDS)));
+			return expiryTimeMillis - System.currentTimeMillis() > MIN_REMAINING_VALIDITY_MILLIS;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	public synchronized void resumeFrom(PublishJournal journal) {
+		synchronized (journal) {
+			properties.putAll(journal.properties);
+		}
+		save();
+	}
+
+	public synchronized String getAppEditId() {
+		return properties.getProperty(APP_EDIT_ID);
+	}
+
+	public synchronized void setAppEdit(String appEditId, String expiryTimeSeconds) {
+		properties.setProperty(APP_EDIT_ID, appEditId);
+		if (expiryTimeSeconds != null) {
+			properties.setProperty(APP_EDIT_EXPIRY_TIME_SECONDS, expiryTimeSeconds);
+		}
+		save();
+	}
+
+	public synchronized Integer getVersionCode(ApkMetadata apk) {
+		String versionCode = properties.getProperty(VERSION_CODE_PREFIX + apk.getSha1());
+		return versionCode == null ? null : Integer.valueOf(versionCode);
+	}
+
+	public synchronized void setVersionCode(ApkMetadata apk, int versionCode) {
+		properties.setProperty(VERSION_CODE_PREFIX + apk.getSha1(), Integer.toString(versionCode));
+		save();
+	}
+
+	public synchronized boolean isTracksUpdated(String tracks) {
+		return tracks.equals(properties.getProperty(TRACKS_UPDATED));
+	}
+
+	public synchronized void setTracksUpdated(String tracks) {
+		properties.setProperty(TRACKS_UPDATED, tracks);
+		save();
+	}
+
+	public synchronized boolean isListingPublished(int versionCode, String language, String recentChanges) {
+		return getListingHash(recentChanges).equals(properties.getProperty(getListingKey(versionCode, language)));
+	}
+
+	public synchronized void setListingPublished(int versionCode, String language, String recentChanges) {
+		properties.setProperty(getListingKey(versionCode, language), getListingHash(recentChanges));
+		save();
+	}
+
+	public synchronized void setCommitted() {
+		properties.setProperty(COMMITTED, Boolean.TRUE.toString());
+		save();
+	}
+
+	private void save() {
+		if (file == null) {
+			return;
+		}
+		try {
+			AtomicFileWriter writer = new AtomicFileWriter(file);
+			try {
+				properties.store(writer, "Google play Publisher journal");
+				writer.commit();
+			} finally {
+				writer.abort();
+			}
+		} catch (IOException e) {
+			LOG.warn(String.format("Failed to store publish journal '%s'", file), e);
+		}
+	}
+
+	private static String getApkSha1s(Collection<ApkMetadata> apks) {
+		List<String> sha1s = new ArrayList<String>();
+		for (ApkMetadata i : apks) {
+			sha1s.add(i.getSha1());
+		}
+		Collections.sort(sha1s);
+		StringBuilder joinedSha1s = new StringBuilder();
+		for (String i : sha1s) {
+			joinedSha1s.append(joinedSha1s.length() == 0 ? "" : ",").append(i);
+		}
+		return joinedSha1s.toString();
+	}
+
+	private static String getListingKey(int versionCode, String language) {
+		return String.format("%s%d.%s", LISTING_PREFIX, versionCode, language);
+	}
+
+	private static String getListingHash(String recentChanges) {
+		try {
+			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+			return Util.toHexString(sha256.digest(String.valueOf(recentChanges).getBytes("UTF-8")));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Message digest 'SHA-256' is not available", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException("Encoding 'UTF-8' is not available", e);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PublishScheduler {
+	private static final PublishScheduler INSTANCE = new PublishScheduler();
+	private final ConcurrentMap<String, PackageQueue> queues = new ConcurrentHashMap<String, PackageQueue>();
+	private final AtomicLong publishCount = new AtomicLong();
+	private final AtomicLong supersededCount = new AtomicLong();
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+	private final AtomicLong maxWaitMillis = new AtomicLong();
+
+	private PublishScheduler() {
+	}
+
+	public static PublishScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	public Slot acquire(String packageName, String trackName, int versionCode, PrintStream logger)
+			throws InterruptedException {
+		Ticket ticket = new Ticket(trackName, versionCode);
+		while (true) {
+			PackageQueue queue = getQueue(packageName);
+			synchronized (queue) {
+				if (!queue.removed) {
+					return acquire(queue, ticket, logger);
+				}
+			}
+		}
+	}
+
+	private Slot acquire(PackageQueue queue, Ticket ticket, PrintStream logger) throws InterruptedException {
+		String packageName = queue.packageName;
+		String trackName = ticket.trackName;
+		int versionCode = ticket.versionCode;
+		synchronized (queue) {
+			for (Ticket i : queue.pending) {
+				if (i.trackName.equals(trackName) && i.versionCode < versionCode) {
+					i.supersededBy = versionCode;
+				}
+			}
+			queue.pending.add(ticket);
+			queue.notifyAll();
+			int queueDepth = queue.pending.size() - 1 + (queue.active == null ? 0 : 1);
+			if (queueDepth > 0) {
+				logger.println(String.format("Waiting for %d publish(es) of package '%s' to finish", queueDepth,
+						packageName));
+			}
+			try {
+				while (ticket.supersededBy == null && (queue.active != null || queue.pending.getFirst() != ticket)) {
+					queue.wait();
+				}
+			} catch (InterruptedException e) {
+				queue.pending.remove(ticket);
+				queue.notifyAll();
+				removeIfIdle(queue);
+				throw e;
+			}
+			queue.pending.remove(ticket);
+			queue.notifyAll();
+			long waitMillis = System.currentTimeMillis() - ticket.enqueuedAt;
+			recordWait(waitMillis);
+			if (ticket.supersededBy != null) {
+				removeIfIdle(queue);
+				supersededCount.incrementAndGet();
+				logger.println(String.format("Version code %d in Track '%s' has been superseded by version code %d " +
+						"after waiting %d ms, skipping publish", versionCode, trackName, ticket.supersededBy,
+						waitMillis));
+				return null;
+			}
+			queue.active = ticket;
+			publishCount.incrementAndGet();
+			if (queueDepth > 0) {
+				logger.println(String.format("Waited %d ms to publish package '%s'", waitMillis, packageName));
+			}
+			return new Slot(queue, ticket);
+		}
+	}
+
+	public Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> queueDepths = new TreeMap<String, Integer>();
+		for (PackageQueue i : queues.values()) {
+			synchronized (i) {
+				if (!i.pending.isEmpty()) {
+					queueDepths.put(i.packageName, i.pending.size());
+				}
+			}
+		}
+		return queueDepths;
+	}
+
+	public int getTotalQueueDepth() {
+		int queueDepth = 0;
+		for (PackageQueue i : queues.values()) {
+			synchronized (i) {
+				queueDepth += i.pending.size();
+			}
+		}
+		return queueDepth;
+	}
+
+	public long getPublishCount() {
+		return publishCount.get();
+	}
+
+	public long getSupersededCount() {
+		return supersededCount.get();
+	}
+
+	public long getTotalWaitMillis() {
+		return totalWaitMillis.get();
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis.get();
+	}
+
+	private PackageQueue getQueue(String packageName) {
+		PackageQueue queue = queues.get(packageName);
+		if (queue == null) {
+			PackageQueue newQueue = new PackageQueue(packageName);
+			queue = queues.putIfAbsent(packageName, newQueue);
+			if (queue == null) {
+				queue = newQueue;
+			}
+		}
+		return queue;
+	}
+
+	// Must be called while holding the lock of the queue
+	private void removeIfIdle(PackageQueue queue) {
+		if (queue.active == null && queue.pending.isEmpty() && !queue.removed) {
+			queue.removed = true;
+			queues.remove(queue.packageName, queue);
+		}
+	}
+
+	private void recordWait(long waitMillis) {
+		totalWaitMillis.addAndGet(waitMillis);
+		long max = maxWaitMillis.get();
+		while (waitMillis > max && !maxWaitMillis.compareAndSet(max, waitMillis)) {
+			max = maxWaitMillis.get();
+		}
+	}
+
+	public class Slot {
+		private final PackageQueue queue;
+		private final Ticket ticket;
+
+		private Slot(PackageQueue queue, Ticket ticket) {
+			this.queue = queue;
+			this.ticket = ticket;
+		}
+
+		public void release() {
+			synchronized (queue) {
+				if (queue.active == ticket) {
+					queue.active = null;
+					queue.notifyAll();
+					removeIfIdle(queue);
+				}
+			}
+		}
+	}
+
+	private static class PackageQueue {
+		private final String packageName;
+		private final LinkedList<Ticket> pending = new LinkedList<Ticket>();
+		private Ticket active;
+		private boolean removed;
+
+		private PackageQueue(String packageName) {
+			this.packageName = packageName;
+		}
+	}
+
+	private static class Ticket {
+		private final String trackName;
+		private final int versionCode;
+		private final long enqueuedAt = System.currentTimeMillis();
+		private Integer supersededBy;
+
+		private Ticket(String trackName, int versionCode) {
+			this.trackName = trackName;
+			this.versionCode = versionCode;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package de.hamm.googleplaypublisher;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiter {
+	private static final int REQUESTS_PER_SECOND =
+			Integer.getInteger(RateLimiter.class.getName() + ".requestsPerSecond", 10);
+	private static final int BURST_SIZE = Integer.getInteger(RateLimiter.class.getName() + ".burstSize", 20);
+	private static final ConcurrentMap<String, RateLimiter> RATE_LIMITERS =
+			new ConcurrentHashMap<String, RateLimiter>();
+	private final double permitsPerMilli;
+	private final double maxPermits;
+	private double availablePermits;
+	private long lastRefill = System.currentTimeMillis();
+	private long blockedUntil;
+
+	public RateLimiter(int permitsPerSecond, int burstSize) {
+		this.permitsPerMilli = permitsPerSecond / (double) TimeUnit.SECONDS.toMillis(1);
+		this.maxPermits = burstSize;
+		this.availablePermits = burstSize;
+	}
+
+	public static RateLimiter forAccount(String credentialId) {
+		RateLimiter rateLimiter = RATE_LIMITERS.get(credentialId);
+		if (rateLimiter == null) {
+			RATE_LIMITERS.putIfAbsent(credentialId, new RateLimiter(REQUESTS_PER_SECOND, BURST_SIZE));
+			rateLimiter = RATE_LIMITERS.get(credentialId);
+		}
+		return rateLimiter;
+	}
+
+	public long acquire(int permits) throws InterruptedIOException {
+		long waitMillis = reserve(permits);
+		if (waitMillis > 0) {
+			try {
+				Thread.sleep(waitMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for rate limiter");
+			}
+		}
+		return waitMillis;
+	}
+
+	public synchronized void blockFor(long millis) {
+		blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + millis);
+	}
+
+	private synchronized long reserve(int permits) {
+		long now = System.currentTimeMillis();
+		availablePermits = Math.min(maxPermits, availablePermits + (now - lastRefill) * permitsPerMilli);
+		lastRefill = now;
+		availablePermits -= permits;
+		long waitMillis = Math.max(blockedUntil - now, 0);
+		if (availablePermits < 0) {
+			waitMillis = Math.max(waitMillis, (long) Math.ceil(-availablePermits / permitsPerMilli));
+		}
+		return waitMillis;
+	}
+}
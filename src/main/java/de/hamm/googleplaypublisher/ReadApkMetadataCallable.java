@@ -0,0 +1,81 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import net.erdfelt.android.apk.AndroidApk;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class ReadApkMetadataCallable implements FilePath.FileCallable<ApkMetadata> {
+	private static final long serialVersionUID = 2L;
+	private static final Log LOG = LogFactory.getLog(ReadApkMetadataCallable.class);
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	public ApkMetadata invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+		String packageName;
+		String versionCode;
+		String versionName;
+		String minSdkVersion = null;
+		try {
+			ApkManifestReader.Manifest manifest = ApkManifestReader.read(file);
+			packageName = manifest.getPackageName();
+			versionCode = manifest.getVersionCode();
+			versionName = manifest.getVersionName();
+			minSdkVersion = manifest.getMinSdkVersion();
+		} catch (IOException e) {
+			LOG.debug(String.format("Falling back to streaming the manifest of '%s'", file), e);
+			AndroidApk androidApk = readAndroidApk(file);
+			packageName = androidApk.getPackageName();
+			versionCode = androidApk.getAppVersionCode();
+			versionName = androidApk.getAppVersion();
+		}
+		MessageDigest sha1 = createMessageDigest("SHA-1");
+		MessageDigest sha256 = createMessageDigest("SHA-256");
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (int length; (length = inputStream.read(buffer)) != -1; ) {
+				sha1.update(buffer, 0, length);
+				sha256.update(buffer, 0, length);
+			}
+		} finally {
+			inputStream.close();
+		}
+		return new ApkMetadata(packageName, parseInt("version code", versionCode), versionName, minSdkVersion,
+				file.length(), Util.toHexString(sha1.digest()), Util.toHexString(sha256.digest()));
+	}
+
+	private static AndroidApk readAndroidApk(File file) throws IOException {
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		try {
+			return new AndroidApk(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static int parseInt(String name, String value) throws IOException {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IOException(String.format("Invalid %s '%s'", name, value), e);
+		}
+	}
+
+	private static MessageDigest createMessageDigest(String algorithm) throws IOException {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(String.format("Message digest '%s' is not available", algorithm), e);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class ReadReleaseNotesDirectoryCallable
+		implements FilePath.FileCallable<ReadReleaseNotesDirectoryCallable.Result> {
+	private static final long serialVersionUID = 1L;
+	public static final int MAX_RELEASE_NOTES_LENGTH = 500;
+	private static final String FILE_EXTENSION = ".txt";
+	private static final long MAX_FILE_SIZE = 64 * 1024;
+	private static final Pattern LANGUAGE = Pattern.compile("[a-z]{2,3}(-([A-Z]{2}|[0-9]{3}))?");
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+	public Result invoke(File directory, VirtualChannel channel) throws IOException, InterruptedException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new FileNotFoundException(String.format("Release Notes directory '%s' does not exist", directory));
+		}
+		Arrays.sort(files);
+		Result result = new Result();
+		for (File i : files) {
+			if (!i.isFile() || !i.getName().endsWith(FILE_EXTENSION)) {
+				continue;
+			}
+			String language = i.getName().substring(0, i.getName().length() - FILE_EXTENSION.length());
+			if (!LANGUAGE.matcher(language).matches()) {
+				result.warnings.add(String.format("Skipping '%s': '%s' is not a language code", i, language));
+				continue;
+			}
+			if (i.length() > MAX_FILE_SIZE) {
+				result.warnings.add(String.format("Skipping '%s': file is larger than %d bytes", i, MAX_FILE_SIZE));
+				continue;
+			}
+			String releaseNotes = FileUtils.readFileToString(i, "UTF-8");
+			if (releaseNotes.length() > 0 && releaseNotes.charAt(0) == BYTE_ORDER_MARK) {
+				releaseNotes = releaseNotes.substring(1);
+			}
+			releaseNotes = releaseNotes.trim();
+			if (releaseNotes.length() == 0) {
+				result.warnings.add(String.format("Skipping '%s': file is empty", i));
+				continue;
+			}
+			if (releaseNotes.codePointCount(0, releaseNotes.length()) > MAX_RELEASE_NOTES_LENGTH) {
+				releaseNotes = releaseNotes.substring(0, releaseNotes.offsetByCodePoints(0, MAX_RELEASE_NOTES_LENGTH));
+				result.warnings.add(String.format("Truncated '%s' to %d characters", i, MAX_RELEASE_NOTES_LENGTH));
+			}
+			result.releaseNotes.add(new ExpandedReleaseNotes(language, releaseNotes));
+		}
+		return result;
+	}
+
+	public static class Result implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final List<ExpandedReleaseNotes> releaseNotes = new ArrayList<ExpandedReleaseNotes>();
+		private final List<String> warnings = new ArrayList<String>();
+
+		public List<ExpandedReleaseNotes> getReleaseNotes() {
+			return Collections.unmodifiableList(releaseNotes);
+		}
+
+		public List<String> getWarnings() {
+			return Collections.unmodifiableList(warnings);
+		}
+	}
+}
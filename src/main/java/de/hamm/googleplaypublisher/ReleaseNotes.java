@@ -9,12 +9,20 @@ import jenkins.model.Jenkins;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class ReleaseNotes implements Describable<ReleaseNotes>, Serializable {
 	private static final String DISLPLAY_NAME = "Release Notes";
+	private static final Pattern VARIABLE = Pattern.compile("\\$([A-Za-z0-9_]+|\\{[A-Za-z0-9_.]+\\}|\\$)");
 	private final String language;
 	private final String releaseNotes;
-	private String expandedReleaseNotes;
+	// Only kept so that configurations saved by older versions load without warnings
+	@Deprecated
+	private transient String expandedReleaseNotes;
+	private transient volatile List<String> template;
 
 	@DataBoundConstructor
 	public ReleaseNotes(String language, String releaseNotes) {
@@ -34,12 +42,50 @@ public class ReleaseNotes implements Describable<ReleaseNotes>, Serializable {
 		return releaseNotes;
 	}
 
-	public String getExpandedReleaseNotes() {
-		return expandedReleaseNotes;
+	public ExpandedReleaseNotes expand(EnvVars envVars) {
+		List<String> template = getTemplate();
+		StringBuilder expanded = new StringBuilder();
+		for (int i = 0; i < template.size(); i++) {
+			String part = template.get(i);
+			if (i % 2 == 0) {
+				expanded.append(part);
+			} else if ("$$".equals(part)) {
+				expanded.append('$');
+			} else {
+				String value = envVars.get(getVariableName(part));
+				expanded.append(value == null ? part : value);
+			}
+		}
+		return new ExpandedReleaseNotes(language, expanded.toString());
+	}
+
+	private List<String> getTemplate() {
+		List<String> template = this.template;
+		if (template == null) {
+			template = parseTemplate(releaseNotes == null ? "" : releaseNotes);
+			this.template = template;
+		}
+		return template;
 	}
 
-	public void expand(EnvVars envVars) {
-		expandedReleaseNotes = envVars.expand(releaseNotes);
+	private static List<String> parseTemplate(String releaseNotes) {
+		List<String> template = new ArrayList<String>();
+		Matcher matcher = VARIABLE.matcher(releaseNotes);
+		int start = 0;
+		while (matcher.find()) {
+			template.add(releaseNotes.substring(start, matcher.start()));
+			template.add(matcher.group());
+			start = matcher.end();
+		}
+		template.add(releaseNotes.substring(start));
+		return template;
+	}
+
+	private static String getVariableName(String variable) {
+		if (variable.startsWith("${")) {
+			return variable.substring(2, variable.length() - 1);
+		}
+		return variable.substring(1);
 	}
 
 	@Extension
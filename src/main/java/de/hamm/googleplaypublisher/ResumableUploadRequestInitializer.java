@@ -0,0 +1,72 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.util.BackOff;
+import com.google.api.client.util.BackOffUtils;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.client.util.NanoClock;
+import com.google.api.client.util.Sleeper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class ResumableUploadRequestInitializer implements HttpRequestInitializer {
+	// Applies to resuming a single chunk, the backoff starts over with every chunk
+	static final int MAX_RESUME_ELAPSED_MILLIS = (int) TimeUnit.MINUTES.toMillis(15);
+	private final HttpRequestInitializer delegate;
+	// Shared by all chunk requests, so that the maximum number of resume attempts applies to the whole upload
+	private final ResumeIOExceptionHandler ioExceptionHandler;
+
+	public ResumableUploadRequestInitializer(HttpRequestInitializer delegate, int maxResumeAttempts) {
+		this(delegate, maxResumeAttempts, NanoClock.SYSTEM, Sleeper.DEFAULT);
+	}
+
+	ResumableUploadRequestInitializer(HttpRequestInitializer delegate, int maxResumeAttempts, NanoClock nanoClock,
+									  Sleeper sleeper) {
+		this.delegate = delegate;
+		this.ioExceptionHandler = new ResumeIOExceptionHandler(maxResumeAttempts, nanoClock, sleeper);
+	}
+
+	public void initialize(HttpRequest request) throws IOException {
+		delegate.initialize(request);
+		// Every chunk is sent with a new request, resumes of a chunk reuse its request
+		ioExceptionHandler.resetBackOff();
+		request.setIOExceptionHandler(ioExceptionHandler);
+	}
+
+	private static class ResumeIOExceptionHandler implements HttpIOExceptionHandler {
+		private final BackOff backOff;
+		private final Sleeper sleeper;
+		private final int maxResumeAttempts;
+		private int resumeAttempts;
+
+		private ResumeIOExceptionHandler(int maxResumeAttempts, NanoClock nanoClock, Sleeper sleeper) {
+			this.maxResumeAttempts = maxResumeAttempts;
+			this.sleeper = sleeper;
+			this.backOff = new ExponentialBackOff.Builder()
+					.setMaxElapsedTimeMillis(MAX_RESUME_ELAPSED_MILLIS)
+					.setNanoClock(nanoClock)
+					.build();
+		}
+
+		private synchronized void resetBackOff() throws IOException {
+			backOff.reset();
+		}
+
+		public synchronized boolean handleIOException(HttpRequest request, boolean supportsRetry) throws IOException {
+			if (!supportsRetry || request.getHeaders().getContentRange() == null
+					|| resumeAttempts >= maxResumeAttempts) {
+				return false;
+			}
+			resumeAttempts++;
+			try {
+				return BackOffUtils.next(sleeper, backOff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+}
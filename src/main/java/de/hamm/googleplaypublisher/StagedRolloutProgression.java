@@ -0,0 +1,118 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.Extension;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.StaplerRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Extension
+public class StagedRolloutProgression extends GlobalConfiguration {
+	// How often Staged Rollouts are checked for changes made outside of this progression, e.g. by a publish
+	private static final long STATE_CHECK_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private List<StagedRolloutSchedule> schedules = new ArrayList<StagedRolloutSchedule>();
+	private Map<String, Long> lastProgressions = new HashMap<String, Long>();
+	private Map<String, String> rolloutStates = new HashMap<String, String>();
+	private Map<String, Long> lastChecks = new HashMap<String, Long>();
+
+	public StagedRolloutProgression() {
+		load();
+	}
+
+	public static StagedRolloutProgression get() {
+		return GlobalConfiguration.all().get(StagedRolloutProgression.class);
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "Google play Staged Rollout Progression";
+	}
+
+	@Override
+	public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+		List<StagedRolloutSchedule> schedules =
+				req.bindJSONToList(StagedRolloutSchedule.class, json.get("schedules"));
+		synchronized (this) {
+			this.schedules = new ArrayList<StagedRolloutSchedule>(schedules);
+		}
+		save();
+		return true;
+	}
+
+	public synchronized List<StagedRolloutSchedule> getSchedules() {
+		if (schedules == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<StagedRolloutSchedule>(schedules));
+	}
+
+	public synchronized List<StagedRolloutSchedule> getDueSchedules(long now) {
+		Map<String, StagedRolloutSchedule> dueSchedules = new LinkedHashMap<String, StagedRolloutSchedule>();
+		for (StagedRolloutSchedule i : getSchedules()) {
+			if (i.getCredentialId() == null || i.getPackageName() == null || dueSchedules.containsKey(i.getKey())) {
+				continue;
+			}
+			Long lastCheck = getLastChecks().get(i.getKey());
+			if (lastCheck == null || now - lastCheck >= STATE_CHECK_INTERVAL_MILLIS || isProgressionDue(i, now)) {
+				dueSchedules.put(i.getKey(), i);
+			}
+		}
+		return new ArrayList<StagedRolloutSchedule>(dueSchedules.values());
+	}
+
+	// The interval counts from the time the current state of the Staged Rollout has first been seen
+	public synchronized boolean isProgressionDue(StagedRolloutSchedule schedule, long now) {
+		Long lastProgression = getLastProgressions().get(schedule.getKey());
+		return lastProgression != null
+				&& now - lastProgression >= TimeUnit.HOURS.toMillis(schedule.getIntervalHours());
+	}
+
+	public synchronized String getRolloutState(StagedRolloutSchedule schedule) {
+		return getRolloutStates().get(schedule.getKey());
+	}
+
+	public void recordRolloutStates(Map<StagedRolloutSchedule, String> rolloutStates, long now) {
+		if (rolloutStates.isEmpty()) {
+			return;
+		}
+		synchronized (this) {
+			for (Map.Entry<StagedRolloutSchedule, String> i : rolloutStates.entrySet()) {
+				String key = i.getKey().getKey();
+				if (!i.getValue().equals(getRolloutStates().get(key))) {
+					getLastProgressions().put(key, now);
+					getRolloutStates().put(key, i.getValue());
+				}
+				getLastChecks().put(key, now);
+			}
+		}
+		save();
+	}
+
+	private Map<String, String> getRolloutStates() {
+		if (rolloutStates == null) {
+			rolloutStates = new HashMap<String, String>();
+		}
+		return rolloutStates;
+	}
+
+	private Map<String, Long> getLastChecks() {
+		if (lastChecks == null) {
+			lastChecks = new HashMap<String, Long>();
+		}
+		return lastChecks;
+	}
+
+	private Map<String, Long> getLastProgressions() {
+		if (lastProgressions == null) {
+			lastProgressions = new HashMap<String, Long>();
+		}
+		return lastProgressions;
+	}
+}
@@ -0,0 +1,223 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+import com.google.api.services.androidpublisher.model.AppEdit;
+import com.google.api.services.androidpublisher.model.Track;
+import com.google.api.services.androidpublisher.model.TracksListResponse;
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StagedRolloutProgressionHelper {
+	public static final String NO_ROLLOUT = "";
+	// A ticket that never supersedes and is never superseded by publishes of builds
+	private static final String PUBLISH_SCHEDULER_TRACK_NAME = "staged rollout progression";
+	private final PrintStream logger;
+	private final GoogleRobotCredentials credentials;
+	private final StagedRolloutSchedule schedule;
+	private final String packageName;
+	private final ApiRequestExecutor requestExecutor;
+	private AndroidPublisher.Edits edits;
+	private String appEditId;
+
+	private StagedRolloutProgressionHelper(PrintStream logger, GoogleRobotCredentials credentials,
+										   StagedRolloutSchedule schedule) {
+		this.logger = logger;
+		this.credentials = credentials;
+		this.schedule = schedule;
+		this.packageName = schedule.getPackageName();
+		this.requestExecutor = new ApiRequestExecutor(logger, credentials.getId());
+	}
+
+	public ApiCallStatistics getApiCallStatistics() {
+		return requestExecutor.getStatistics();
+	}
+
+	// Advances the Staged Rollout only if it is still in the previous state and its interval has elapsed
+	public String progress(String previousRolloutState, boolean progressionDue)
+			throws StagedRolloutProgressionException {
+		PublishScheduler.Slot slot = acquirePublishSlot();
+		if (slot == null) {
+			return previousRolloutState;
+		}
+		boolean committed = false;
+		try {
+			createAndroidPublisherEdits();
+			createAppEdit();
+			Map<String, Track> currentTracks = listTracks();
+			Track rolloutTrack = currentTracks.get(ProductionTrack.NAME_ROLLOUT);
+			String rolloutState = getRolloutState(rolloutTrack);
+			if (rolloutState.equals(NO_ROLLOUT)) {
+				logger.println(String.format("[%s] No Staged Rollout in progress", packageName));
+				return rolloutState;
+			}
+			if (!rolloutState.equals(previousRolloutState)) {
+				logger.println(String.format("[%s] Staged Rollout %s has not been seen before, advancing it in %d " +
+						"hours at the earliest", packageName, rolloutState, schedule.getIntervalHours()));
+				return rolloutState;
+			}
+			if (!progressionDue) {
+				return rolloutState;
+			}
+			Double nextUserFraction = schedule.getNextUserFraction(rolloutTrack.getUserFraction());
+			if (nextUserFraction == null) {
+				logger.println(String.format("[%s] Staged Rollout is already at the last step of %s",
+						packageName, rolloutTrack.getUserFraction()));
+				return rolloutState;
+			}
+			List<Integer> versionCodes = new ArrayList<Integer>(rolloutTrack.getVersionCodes());
+			ProductionTrack track = new ProductionTrack(
+					nextUserFraction >= 1 ? null : new ProductionTrack.StagedRollout(nextUserFraction));
+			TrackUpdatePlan plan = new TrackUpdatePlan(track, versionCodes, currentTracks);
+			logger.println(String.format("[%s] Advancing Staged Rollout from %s to %s", packageName,
+					rolloutTrack.getUserFraction(), nextUserFraction));
+			for (TrackUpdatePlan.Update i : plan.getUpdates()) {
+				executeTrackUpdate(i);
+			}
+			commitAppEdit();
+			committed = true;
+			return getRolloutState(plan.getUpdates(), rolloutState);
+		} finally {
+			if (appEditId != null && !committed) {
+				deleteAppEdit();
+			}
+			slot.release();
+			logger.println(String.format("[%s] %s", packageName, requestExecutor.getSummary()));
+		}
+	}
+
+	static String getRolloutState(Track rolloutTrack) {
+		if (rolloutTrack == null || rolloutTrack.getVersionCodes() == null
+				|| rolloutTrack.getVersionCodes().isEmpty()) {
+			return NO_ROLLOUT;
+		}
+		List<Integer> versionCodes = new ArrayList<Integer>(rolloutTrack.getVersionCodes());
+		Collections.sort(versionCodes);
+		return String.format("%s@%s", versionCodes, rolloutTrack.getUserFraction());
+	}
+
+	private static String getRolloutState(List<TrackUpdatePlan.Update> updates, String rolloutState) {
+		for (TrackUpdatePlan.Update i : updates) {
+			if (ProductionTrack.NAME_ROLLOUT.equals(i.getTrackName())) {
+				return getRolloutState(i.getApiTrack());
+			}
+		}
+		return rolloutState;
+	}
+
+	private PublishScheduler.Slot acquirePublishSlot() throws StagedRolloutProgressionException {
+		try {
+			return PublishScheduler.getInstance().acquire(packageName, PUBLISH_SCHEDULER_TRACK_NAME, 0, logger);
+		} catch (InterruptedException e) {
+			throw new StagedRolloutProgressionException(
+					String.format("Interrupted while waiting for publishes of package '%s'", packageName), e);
+		}
+	}
+
+	private void createAndroidPublisherEdits() throws StagedRolloutProgressionException {
+		try {
+			edits = AndroidPublisherClientCache.getInstance().getAndroidPublisher(credentials).edits();
+		} catch (GeneralSecurityException e) {
+			throw new StagedRolloutProgressionException("Failed to create Android Publisher Edits", e);
+		} catch (IOException e) {
+			throw new StagedRolloutProgressionException("Failed to create Android Publisher Edits", e);
+		}
+	}
+
+	private void createAppEdit() throws StagedRolloutProgressionException {
+		try {
+			AppEdit appEdit = requestExecutor.execute(edits.insert(packageName, null));
+			appEditId = appEdit.getId();
+		} catch (IOException e) {
+			throw new StagedRolloutProgressionException("Failed to execute insert request", e);
+		}
+	}
+
+	private void deleteAppEdit() {
+		try {
+			requestExecutor.executeOnce(edits.delete(packageName, appEditId));
+		} catch (IOException e) {
+			logger.println(String.format("[%s] Failed to delete App edit with id %s: %s", packageName, appEditId,
+					e.getMessage()));
+		}
+	}
+
+	private Map<String, Track> listTracks() throws StagedRolloutProgressionException {
+		try {
+			TracksListResponse response = requestExecutor.execute(edits.tracks().list(packageName, appEditId));
+			Map<String, Track> tracks = new HashMap<String, Track>();
+			if (response.getTracks() != null) {
+				for (Track i : response.getTracks()) {
+					tracks.put(i.getTrack(), i);
+				}
+			}
+			return tracks;
+		} catch (IOException e) {
+			throw new StagedRolloutProgressionException("Failed to execute list tracks request", e);
+		}
+	}
+
+	private void executeTrackUpdate(TrackUpdatePlan.Update update) throws StagedRolloutProgressionException {
+		try {
+			requestExecutor.execute(
+					edits.tracks().update(packageName, appEditId, update.getTrackName(), update.getApiTrack()));
+			logger.println(String.format("[%s] %s", packageName, update.getSuccessMessage()));
+		} catch (IOException e) {
+			throw new StagedRolloutProgressionException(update.getFailureMessage(), e);
+		}
+	}
+
+	private void commitAppEdit() throws StagedRolloutProgressionException {
+		try {
+			AppEdit appEdit = requestExecutor.execute(edits.commit(packageName, appEditId));
+			logger.println(String.format("[%s] App edit with id %s has been comitted", packageName, appEdit.getId()));
+		} catch (GoogleJsonResponseException e) {
+			throw new StagedRolloutProgressionException(
+					String.format("Failed to execute commit request. Google play Api Message: '%s'",
+							e.getDetails().getMessage()), e);
+		} catch (IOException e) {
+			throw new StagedRolloutProgressionException("Failed to execute commit request", e);
+		} finally {
+			AppEditPool.getInstance().invalidate(credentials.getId(), packageName);
+		}
+	}
+
+	public static class Builder {
+		private PrintStream logger;
+		private GoogleRobotCredentials credentials;
+		private StagedRolloutSchedule schedule;
+
+		public Builder setLogger(PrintStream logger) {
+			this.logger = logger;
+			return this;
+		}
+
+		public Builder setCredentials(GoogleRobotCredentials credentials) {
+			this.credentials = credentials;
+			return this;
+		}
+
+		public Builder setSchedule(StagedRolloutSchedule schedule) {
+			this.schedule = schedule;
+			return this;
+		}
+
+		public StagedRolloutProgressionHelper createStagedRolloutProgressionHelper() {
+			return new StagedRolloutProgressionHelper(logger, credentials, schedule);
+		}
+	}
+
+	public static class StagedRolloutProgressionException extends RuntimeException {
+		public StagedRolloutProgressionException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.jenkins.plugins.credentials.oauth.GoogleRobotCredentials;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+@Extension
+public class StagedRolloutProgressionWork extends AsyncPeriodicWork {
+	private static final Log LOG = LogFactory.getLog(StagedRolloutProgressionWork.class);
+	private static final long RECURRENCE_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(15);
+	private static final int MAX_PARALLEL_PROGRESSIONS = 4;
+
+	public StagedRolloutProgressionWork() {
+		super("Google play Staged Rollout Progression");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return RECURRENCE_PERIOD_MILLIS;
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		StagedRolloutProgression progression = StagedRolloutProgression.get();
+		if (progression == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		List<StagedRolloutSchedule> dueSchedules = progression.getDueSchedules(now);
+		if (dueSchedules.isEmpty()) {
+			return;
+		}
+		final PrintStream logger = listener.getLogger();
+		logger.println(String.format("Checking Staged Rollouts of %d packages", dueSchedules.size()));
+		ParallelTasks<StagedRolloutSchedule, String> progressions = new ParallelTasks<StagedRolloutSchedule, String>(
+				"Google play Staged Rollout Progression", MAX_PARALLEL_PROGRESSIONS);
+		for (final StagedRolloutSchedule i : dueSchedules) {
+			final String previousRolloutState = progression.getRolloutState(i);
+			final boolean progressionDue = progression.isProgressionDue(i, now);
+			progressions.add(i, new Callable<String>() {
+				public String call() {
+					return new StagedRolloutProgressionHelper.Builder()
+							.setLogger(logger)
+							.setCredentials(GoogleRobotCredentials.getById(i.getCredentialId()))
+							.setSchedule(i)
+							.createStagedRolloutProgressionHelper()
+							.progress(previousRolloutState, progressionDue);
+				}
+			});
+		}
+		ParallelTasks.Result<StagedRolloutSchedule, String> result = progressions.run();
+		for (Map.Entry<StagedRolloutSchedule, Throwable> i : result.getFailures().entrySet()) {
+			String message = String.format("Failed to advance Staged Rollout of package '%s': %s",
+					i.getKey().getPackageName(), i.getValue().getMessage());
+			logger.println(message);
+			LOG.error(message, i.getValue());
+		}
+		progression.recordRolloutStates(result.getValues(), now);
+	}
+}
@@ -0,0 +1,99 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.jenkins.plugins.credentials.domains.RequiresDomain;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Describable;
+import hudson.model.Descriptor;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RequiresDomain(value = AndroidPublisherScopeRequirement.class)
+public class StagedRolloutSchedule implements Describable<StagedRolloutSchedule>, Serializable {
+	private static final String DISPLAY_NAME = "Staged Rollout Schedule";
+	public static final int DEFAULT_INTERVAL_HOURS = 24;
+	private final String credentialId;
+	private final String packageName;
+	private final String userFractions;
+	private final int intervalHours;
+
+	@DataBoundConstructor
+	public StagedRolloutSchedule(String credentialId, String packageName, String userFractions, int intervalHours) {
+		this.credentialId = credentialId;
+		this.packageName = Util.fixEmptyAndTrim(packageName);
+		this.userFractions = userFractions;
+		this.intervalHours = intervalHours;
+	}
+
+	public DescriptorImpl getDescriptor() {
+		return (DescriptorImpl) Jenkins.getInstance().getDescriptorOrDie(StagedRolloutSchedule.class);
+	}
+
+	public String getCredentialId() {
+		return credentialId;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	public String getUserFractions() {
+		return userFractions;
+	}
+
+	public int getIntervalHours() {
+		if (intervalHours <= 0) {
+			return DEFAULT_INTERVAL_HOURS;
+		}
+		return intervalHours;
+	}
+
+	public String getKey() {
+		return credentialId + '/' + packageName;
+	}
+
+	public List<Double> getUserFractionSteps() {
+		List<Double> steps = new ArrayList<Double>();
+		if (userFractions == null) {
+			return steps;
+		}
+		for (String i : userFractions.split(",")) {
+			String step = i.trim();
+			if (step.length() == 0) {
+				continue;
+			}
+			try {
+				double userFraction = Double.parseDouble(step);
+				if (userFraction > 0 && userFraction <= 1 && !steps.contains(userFraction)) {
+					steps.add(userFraction);
+				}
+			} catch (NumberFormatException e) {
+				// Invalid steps are ignored, the remaining steps are still applied
+			}
+		}
+		Collections.sort(steps);
+		return steps;
+	}
+
+	public Double getNextUserFraction(Double currentUserFraction) {
+		for (Double i : getUserFractionSteps()) {
+			if (currentUserFraction == null || i > currentUserFraction) {
+				return i;
+			}
+		}
+		return null;
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends Descriptor<StagedRolloutSchedule> {
+		@Override
+		public String getDisplayName() {
+			return DISPLAY_NAME;
+		}
+	}
+}
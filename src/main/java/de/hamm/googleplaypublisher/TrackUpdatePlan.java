@@ -0,0 +1,156 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.services.androidpublisher.model.Track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TrackUpdatePlan {
+	private static final List<String> TRACK_NAMES = Arrays.asList(ProductionTrack.NAME_PRODUCTION,
+			ProductionTrack.NAME_ROLLOUT, BetaTrack.NAME, AlphaTrack.NAME);
+	private final Map<String, List<Integer>> currentVersionCodes = new LinkedHashMap<String, List<Integer>>();
+	private final Map<String, Update> updates = new LinkedHashMap<String, Update>();
+
+	public TrackUpdatePlan(de.hamm.googleplaypublisher.Track track, List<Integer> versionCodes,
+						   Map<String, Track> currentTracks) {
+		for (String i : TRACK_NAMES) {
+			currentVersionCodes.put(i, getVersionCodes(currentTracks.get(i)));
+		}
+		planPublishVersions(track, versionCodes, currentTracks.get(track.getName()));
+		Integer highestVersionCode = Collections.max(versionCodes);
+		for (String i : track.getTracksWhereToUnpublishLowerVersions()) {
+			planUnpublishLowerVersions(highestVersionCode, i, currentTracks.get(i));
+		}
+		for (String i : track.getTracksWhereToUnpublishAllVersions()) {
+			planUnpublishAllVersions(i, currentTracks.get(i));
+		}
+	}
+
+	public List<Update> getUpdates() {
+		return new ArrayList<Update>(updates.values());
+	}
+
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder("Track update plan:");
+		for (Map.Entry<String, List<Integer>> i : currentVersionCodes.entrySet()) {
+			Update update = updates.get(i.getKey());
+			summary.append(String.format("%n  %s: %s", i.getKey(), Arrays.toString(i.getValue().toArray())));
+			if (update == null) {
+				summary.append(" (unchanged)");
+			} else {
+				summary.append(" -> ").append(Arrays.toString(update.getVersionCodes().toArray()));
+			}
+		}
+		return summary.toString();
+	}
+
+	static List<Integer> getHigherVersionCodes(Integer currentVersionCode, List<Integer> versionCodes) {
+		List<Integer> higherVersionCodes = new ArrayList<Integer>();
+		for (Integer i : versionCodes) {
+			if (i > currentVersionCode) {
+				higherVersionCodes.add(i);
+			}
+		}
+		return higherVersionCodes;
+	}
+
+	static List<Integer> getLowerVersionCodes(Integer currentVersionCode, List<Integer> versionCodes) {
+		List<Integer> lowerVersionCodes = new ArrayList<Integer>();
+		for (Integer i : versionCodes) {
+			if (i <= currentVersionCode) {
+				lowerVersionCodes.add(i);
+			}
+		}
+		return lowerVersionCodes;
+	}
+
+	private void planPublishVersions(de.hamm.googleplaypublisher.Track track, List<Integer> versionCodes,
+									 Track currentTrack) {
+		Track apiTrack = track.createApiTrack().setVersionCodes(versionCodes);
+		if (currentTrack != null
+				&& new HashSet<Integer>(getVersionCodes(currentTrack)).equals(new HashSet<Integer>(versionCodes))
+				&& equal(currentTrack.getUserFraction(), apiTrack.getUserFraction())) {
+			return;
+		}
+		String versions = Arrays.toString(versionCodes.toArray());
+		updates.put(track.getName(), new Update(track.getName(), apiTrack, versionCodes,
+				String.format("Version codes %s have been published in Track '%s'", versions, track.getName()),
+				String.format("Failed to publish Version codes %s in Track '%s'", versions, track.getName())));
+	}
+
+	private void planUnpublishLowerVersions(Integer currentVersionCode, String trackName, Track currentTrack) {
+		List<Integer> versionCodes = getVersionCodes(currentTrack);
+		List<Integer> higherVersionCodes = getHigherVersionCodes(currentVersionCode, versionCodes);
+		if (!versionCodes.equals(higherVersionCodes)) {
+			String lowerVersions = Arrays.toString(getLowerVersionCodes(currentVersionCode, versionCodes).toArray());
+			updates.put(trackName, new Update(trackName, currentTrack.setVersionCodes(higherVersionCodes),
+					higherVersionCodes,
+					String.format("Version codes %s have been unpublished from Track '%s'", lowerVersions, trackName),
+					String.format("Failed to unpublish Version codes %s in Track '%s'", lowerVersions, trackName)));
+		}
+	}
+
+	private void planUnpublishAllVersions(String trackName, Track currentTrack) {
+		List<Integer> versionCodes = getVersionCodes(currentTrack);
+		if (!versionCodes.isEmpty()) {
+			String versions = Arrays.toString(versionCodes.toArray());
+			updates.put(trackName, new Update(trackName, currentTrack.setVersionCodes(null),
+					Collections.<Integer>emptyList(),
+					String.format("Version codes %s have been unpublished from Track '%s'", versions, trackName),
+					String.format("Failed to unpublish Version codes %s in Track '%s'", versions, trackName)));
+		}
+	}
+
+	private static List<Integer> getVersionCodes(Track track) {
+		if (track == null || track.getVersionCodes() == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Integer>(track.getVersionCodes());
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	public static class Update {
+		private final String trackName;
+		private final Track apiTrack;
+		private final List<Integer> versionCodes;
+		private final String successMessage;
+		private final String failureMessage;
+
+		private Update(String trackName, Track apiTrack, List<Integer> versionCodes, String successMessage,
+					   String failureMessage) {
+			this.trackName = trackName;
+			this.apiTrack = apiTrack;
+			this.versionCodes = versionCodes;
+			this.successMessage = successMessage;
+			this.failureMessage = failureMessage;
+		}
+
+		public String getTrackName() {
+			return trackName;
+		}
+
+		public Track getApiTrack() {
+			return apiTrack;
+		}
+
+		public List<Integer> getVersionCodes() {
+			return versionCodes;
+		}
+
+		public String getSuccessMessage() {
+			return successMessage;
+		}
+
+		public String getFailureMessage() {
+			return failureMessage;
+		}
+	}
+}
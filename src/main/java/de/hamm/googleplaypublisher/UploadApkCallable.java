@@ -0,0 +1,85 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.InputStreamContent;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+import com.google.api.services.androidpublisher.model.Apk;
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+public class UploadApkCallable implements FilePath.FileCallable<Integer> {
+	private static final long serialVersionUID = 1L;
+	private static final String MIME_TYPE_APK = "application/vnd.android.package-archive";
+	private static final String APPLICATION_NAME = "de.hamm.googleplaypublisher";
+	private static HttpTransport httpTransport;
+	private final String accessToken;
+	private final String packageName;
+	private final String appEditId;
+	private final int chunkSizeInBytes;
+	private final int maxResumeAttempts;
+
+	public UploadApkCallable(String accessToken, String packageName, String appEditId,
+							 GooglePlayPublisher.ResumableUpload resumableUpload) {
+		this.accessToken = accessToken;
+		this.packageName = packageName;
+		this.appEditId = appEditId;
+		if (resumableUpload == null) {
+			chunkSizeInBytes = 0;
+			maxResumeAttempts = 0;
+		} else {
+			chunkSizeInBytes = resumableUpload.getChunkSizeInBytes();
+			maxResumeAttempts = resumableUpload.getMaxResumeAttempts();
+		}
+	}
+
+	public Integer invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+		Credential credential = new Credential(BearerToken.authorizationHeaderAccessMethod())
+				.setAccessToken(accessToken);
+		HttpRequestInitializer requestInitializer = credential;
+		if (chunkSizeInBytes > 0) {
+			requestInitializer = new ResumableUploadRequestInitializer(credential, maxResumeAttempts);
+		}
+		AndroidPublisher androidPublisher =
+				new AndroidPublisher.Builder(getHttpTransport(), new JacksonFactory(), requestInitializer)
+						.setApplicationName(APPLICATION_NAME)
+						.build();
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			InputStreamContent apkContent = new InputStreamContent(MIME_TYPE_APK, inputStream)
+					.setLength(file.length());
+			AndroidPublisher.Edits.Apks.Upload upload =
+					androidPublisher.edits().apks().upload(packageName, appEditId, apkContent);
+			if (chunkSizeInBytes > 0) {
+				upload.getMediaHttpUploader()
+						.setDirectUploadEnabled(false)
+						.setChunkSize(chunkSizeInBytes);
+			}
+			Apk apk = upload.execute();
+			return apk.getVersionCode();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static synchronized HttpTransport getHttpTransport() throws IOException {
+		if (httpTransport == null) {
+			try {
+				httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+			} catch (GeneralSecurityException e) {
+				throw new IOException("Failed to create new Trusted Transport", e);
+			}
+		}
+		return httpTransport;
+	}
+}
@@ -0,0 +1,158 @@
+package de.hamm.googleplaypublisher;
+
+import hudson.util.AtomicFileWriter;
+import jenkins.model.Jenkins;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class VersionCodeAllocator {
+	private static final Log LOG = LogFactory.getLog(VersionCodeAllocator.class);
+	private static final long SYNC_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	private static final String FILE_NAME = VersionCodeAllocator.class.getName() + ".properties";
+	private static final VersionCodeAllocator INSTANCE = new VersionCodeAllocator();
+	private final Map<String, PackageState> packageStates = new HashMap<String, PackageState>();
+	private final Object fileLock = new Object();
+	private Properties highestVersionCodes;
+	private long modificationCount;
+	private long writtenModificationCount;
+
+	private VersionCodeAllocator() {
+	}
+
+	public static VersionCodeAllocator getInstance() {
+		return INSTANCE;
+	}
+
+	public int allocate(String packageName, RemoteSync remoteSync) {
+		PackageState packageState = getPackageState(packageName);
+		int versionCode;
+		synchronized (packageState) {
+			long now = System.currentTimeMillis();
+			if (now - packageState.lastSync > SYNC_TTL_MILLIS) {
+				packageState.highestVersionCode =
+						Math.max(packageState.highestVersionCode, remoteSync.fetchHighestVersionCode());
+				packageState.lastSync = now;
+			}
+			versionCode = ++packageState.highestVersionCode;
+		}
+		// Persisted outside of the package lock, the allocator lock is never taken while holding a package lock
+		persist(packageName, versionCode);
+		return versionCode;
+	}
+
+	public void invalidate(String packageName) {
+		PackageState packageState;
+		synchronized (this) {
+			packageState = packageStates.get(packageName);
+		}
+		if (packageState != null) {
+			synchronized (packageState) {
+				packageState.lastSync = 0;
+			}
+		}
+	}
+
+	private synchronized PackageState getPackageState(String packageName) {
+		PackageState packageState = packageStates.get(packageName);
+		if (packageState == null) {
+			packageState = new PackageState();
+			String highestVersionCode = getHighestVersionCodes().getProperty(packageName);
+			if (highestVersionCode != null) {
+				try {
+					packageState.highestVersionCode = Integer.parseInt(highestVersionCode);
+				} catch (NumberFormatException e) {
+					LOG.warn(String.format("Ignoring invalid version code '%s' of package '%s' in '%s'",
+							highestVersionCode, packageName, FILE_NAME), e);
+				}
+			}
+			packageStates.put(packageName, packageState);
+		}
+		return packageState;
+	}
+
+	private synchronized Properties getHighestVersionCodes() {
+		if (highestVersionCodes == null) {
+			highestVersionCodes = new Properties();
+			File file = getFile();
+			if (file != null && file.exists()) {
+				try {
+					InputStream inputStream = new FileInputStream(file);
+					try {
+						highestVersionCodes.load(inputStream);
+					} finally {
+						inputStream.close();
+					}
+				} catch (IOException e) {
+					LOG.warn(String.format("Failed to load version codes from '%s'", file), e);
+				}
+			}
+		}
+		return highestVersionCodes;
+	}
+
+	private void persist(String packageName, int highestVersionCode) {
+		Properties snapshot;
+		long modification;
+		synchronized (this) {
+			String persistedVersionCode = getHighestVersionCodes().getProperty(packageName);
+			try {
+				if (persistedVersionCode != null && Integer.parseInt(persistedVersionCode) >= highestVersionCode) {
+					return;
+				}
+			} catch (NumberFormatException e) {
+				// Overwritten below
+			}
+			highestVersionCodes.setProperty(packageName, Integer.toString(highestVersionCode));
+			snapshot = (Properties) highestVersionCodes.clone();
+			modification = ++modificationCount;
+		}
+		File file = getFile();
+		if (file == null) {
+			return;
+		}
+		// Written outside of the allocator lock, a snapshot never overwrites a newer one
+		synchronized (fileLock) {
+			if (modification <= writtenModificationCount) {
+				return;
+			}
+			try {
+				AtomicFileWriter writer = new AtomicFileWriter(file);
+				try {
+					snapshot.store(writer, "Highest version codes allocated by Google play Publisher");
+					writer.commit();
+				} finally {
+					writer.abort();
+				}
+				writtenModificationCount = modification;
+			} catch (IOException e) {
+				LOG.warn(String.format("Failed to store version codes in '%s'", file), e);
+			}
+		}
+	}
+
+	private static File getFile() {
+		Jenkins instance = Jenkins.getInstance();
+		if (instance == null) {
+			return null;
+		}
+		return new File(instance.getRootDir(), FILE_NAME);
+	}
+
+	public interface RemoteSync {
+		int fetchHighestVersionCode();
+	}
+
+	private static class PackageState {
+		private int highestVersionCode;
+		private long lastSync;
+	}
+}
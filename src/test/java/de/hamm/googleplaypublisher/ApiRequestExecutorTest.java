@@ -0,0 +1,157 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+import com.google.api.services.androidpublisher.model.AppEdit;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ApiRequestExecutorTest {
+	private static final String PACKAGE_NAME = "de.hamm.test";
+	private static final String RATE_LIMIT_ERROR =
+			"{\"error\":{\"code\":403,\"errors\":[{\"reason\":\"rateLimitExceeded\"}]}}";
+	private ScriptedTransport transport;
+	private AndroidPublisher.Edits edits;
+	private ApiRequestExecutor requestExecutor;
+
+	@Before
+	public void setUp() {
+		transport = new ScriptedTransport();
+		edits = new AndroidPublisher.Builder(transport, new JacksonFactory(), null)
+				.setApplicationName("ApiRequestExecutorTest").build().edits();
+		requestExecutor = new ApiRequestExecutor(new PrintStream(new ByteArrayOutputStream()),
+				"api-request-executor-test");
+	}
+
+	@Test
+	public void retriesIdempotentRequestAfterServerError() throws Exception {
+		transport.add(503, "{}").add(200, "{\"id\":\"edit\"}");
+
+		AppEdit appEdit = requestExecutor.execute(edits.get(PACKAGE_NAME, "edit"));
+
+		assertEquals("edit", appEdit.getId());
+		assertEquals(2, transport.requestCount);
+		assertEquals(1, requestExecutor.getRetryCount());
+		assertEquals(0, requestExecutor.getThrottleCount());
+	}
+
+	@Test
+	public void doesNotRetryNonIdempotentRequestAfterServerError() throws Exception {
+		transport.add(503, "{}").add(200, "{\"id\":\"edit\"}");
+
+		try {
+			requestExecutor.execute(edits.insert(PACKAGE_NAME, new AppEdit()));
+			fail();
+		} catch (GoogleJsonResponseException e) {
+			assertEquals(503, e.getStatusCode());
+		}
+		assertEquals(1, transport.requestCount);
+		assertEquals(0, requestExecutor.getRetryCount());
+	}
+
+	@Test
+	public void retriesNonIdempotentRequestWhenRateLimited() throws Exception {
+		transport.add(429, "{}").add(403, RATE_LIMIT_ERROR).add(200, "{\"id\":\"edit\"}");
+
+		AppEdit appEdit = requestExecutor.execute(edits.insert(PACKAGE_NAME, new AppEdit()));
+
+		assertEquals("edit", appEdit.getId());
+		assertEquals(3, transport.requestCount);
+		assertEquals(2, requestExecutor.getRetryCount());
+		assertEquals(2, requestExecutor.getThrottleCount());
+	}
+
+	@Test
+	public void doesNotRetryClientErrors() throws Exception {
+		transport.add(403, "{\"error\":{\"code\":403,\"errors\":[{\"reason\":\"forbidden\"}]}}");
+
+		try {
+			requestExecutor.execute(edits.get(PACKAGE_NAME, "edit"));
+			fail();
+		} catch (GoogleJsonResponseException e) {
+			assertEquals(403, e.getStatusCode());
+		}
+		assertEquals(1, transport.requestCount);
+	}
+
+	@Test
+	public void givesUpAfterMaxAttempts() throws Exception {
+		for (int i = 0; i < 6; i++) {
+			transport.add(500, "{}");
+		}
+
+		try {
+			requestExecutor.execute(edits.get(PACKAGE_NAME, "edit"));
+			fail();
+		} catch (GoogleJsonResponseException e) {
+			assertEquals(500, e.getStatusCode());
+		}
+		assertEquals(5, transport.requestCount);
+		assertEquals(4, requestExecutor.getRetryCount());
+	}
+
+	@Test
+	public void backsOffExponentiallyWithJitter() {
+		for (int attempt = 1; attempt <= 8; attempt++) {
+			long maxBackoffMillis = Math.min(32000, 1000L << (attempt - 1));
+			long backoffMillis = requestExecutor.getBackoffMillis(attempt);
+			assertTrue(String.valueOf(backoffMillis),
+					backoffMillis >= maxBackoffMillis / 2 && backoffMillis <= maxBackoffMillis);
+		}
+	}
+
+	@Test
+	public void boundsRetryAfterByMaxBackoff() {
+		assertEquals(32000, requestExecutor.getRetryDelayMillis(createThrottledException("86400"), 1));
+		assertEquals(5000, requestExecutor.getRetryDelayMillis(createThrottledException("5"), 1));
+		assertEquals(0, requestExecutor.getRetryDelayMillis(createThrottledException("-1"), 1));
+	}
+
+	private static HttpResponseException createThrottledException(String retryAfter) {
+		HttpHeaders headers = new HttpHeaders().set("Retry-After", retryAfter);
+		return new HttpResponseException.Builder(429, "Too Many Requests", headers).build();
+	}
+
+	// Answers requests with the queued responses, retries are told to come back immediately
+	private static class ScriptedTransport extends MockHttpTransport {
+		private final LinkedList<MockLowLevelHttpResponse> responses = new LinkedList<MockLowLevelHttpResponse>();
+		private int requestCount;
+
+		private ScriptedTransport add(int statusCode, String content) {
+			responses.add(new MockLowLevelHttpResponse()
+					.setStatusCode(statusCode)
+					.setContentType(Json.MEDIA_TYPE)
+					.setContent(content)
+					.addHeader("Retry-After", "0"));
+			return this;
+		}
+
+		@Override
+		public LowLevelHttpRequest buildRequest(String method, String url) {
+			return new MockLowLevelHttpRequest(url) {
+				@Override
+				public LowLevelHttpResponse execute() {
+					requestCount++;
+					return responses.removeFirst();
+				}
+			};
+		}
+	}
+}
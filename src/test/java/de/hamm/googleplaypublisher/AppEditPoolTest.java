@@ -0,0 +1,113 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.androidpublisher.AndroidPublisher;
+import com.google.api.services.androidpublisher.model.AppEdit;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AppEditPoolTest {
+	private static final String PACKAGE_NAME = "de.hamm.test";
+	private static final String NEW_APP_EDIT = "{\"id\":\"new\",\"expiryTimeSeconds\":\"4102444800\"}";
+	private ScriptedTransport transport;
+	private AndroidPublisher.Edits edits;
+	private ApiRequestExecutor requestExecutor;
+
+	@Before
+	public void setUp() {
+		transport = new ScriptedTransport();
+		edits = new AndroidPublisher.Builder(transport, new JacksonFactory(), null)
+				.setApplicationName("AppEditPoolTest").build().edits();
+		requestExecutor = new ApiRequestExecutor(new PrintStream(new ByteArrayOutputStream()), "app-edit-pool-test");
+	}
+
+	@Test
+	public void reusesPooledAppEditThatStillExists() throws Exception {
+		AppEdit pooledAppEdit = createAppEdit("pooled", TimeUnit.HOURS.toMillis(1));
+		transport.add(200, "{\"id\":\"pooled\"}");
+
+		AppEdit appEdit = AppEditPool.verifyOrInsert(pooledAppEdit, edits, PACKAGE_NAME, requestExecutor);
+
+		assertSame(pooledAppEdit, appEdit);
+		assertEquals(Arrays.asList("GET"), transport.methods);
+	}
+
+	@Test
+	public void insertsAppEditWhenPooledAppEditIsGone() throws Exception {
+		AppEdit pooledAppEdit = createAppEdit("pooled", TimeUnit.HOURS.toMillis(1));
+		transport.add(404, "{\"error\":{\"code\":404,\"message\":\"This Edit has been deleted.\"}}")
+				.add(200, NEW_APP_EDIT);
+
+		AppEdit appEdit = AppEditPool.verifyOrInsert(pooledAppEdit, edits, PACKAGE_NAME, requestExecutor);
+
+		assertEquals("new", appEdit.getId());
+		assertEquals(Arrays.asList("GET", "POST"), transport.methods);
+	}
+
+	@Test
+	public void insertsAppEditWhenPooledAppEditExpires() throws Exception {
+		transport.add(200, NEW_APP_EDIT);
+
+		AppEdit appEdit = AppEditPool.verifyOrInsert(createAppEdit("pooled", TimeUnit.MINUTES.toMillis(1)), edits,
+				PACKAGE_NAME, requestExecutor);
+
+		assertEquals("new", appEdit.getId());
+		assertEquals(Arrays.asList("POST"), transport.methods);
+	}
+
+	@Test
+	public void insertsAppEditWithoutPooledAppEdit() throws Exception {
+		transport.add(200, NEW_APP_EDIT);
+
+		AppEdit appEdit = AppEditPool.verifyOrInsert(null, edits, PACKAGE_NAME, requestExecutor);
+
+		assertEquals("new", appEdit.getId());
+		assertEquals(Arrays.asList("POST"), transport.methods);
+	}
+
+	private static AppEdit createAppEdit(String id, long validityMillis) {
+		long expiryTimeSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() + validityMillis);
+		return new AppEdit().setId(id).setExpiryTimeSeconds(Long.toString(expiryTimeSeconds));
+	}
+
+	private static class ScriptedTransport extends MockHttpTransport {
+		private final LinkedList<MockLowLevelHttpResponse> responses = new LinkedList<MockLowLevelHttpResponse>();
+		private final List<String> methods = new ArrayList<String>();
+
+		private ScriptedTransport add(int statusCode, String content) {
+			responses.add(new MockLowLevelHttpResponse()
+					.setStatusCode(statusCode)
+					.setContentType(Json.MEDIA_TYPE)
+					.setContent(content));
+			return this;
+		}
+
+		@Override
+		public LowLevelHttpRequest buildRequest(String method, String url) {
+			methods.add(method);
+			return new MockLowLevelHttpRequest(url) {
+				@Override
+				public LowLevelHttpResponse execute() {
+					return responses.removeFirst();
+				}
+			};
+		}
+	}
+}
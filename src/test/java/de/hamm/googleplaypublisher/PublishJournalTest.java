@@ -0,0 +1,109 @@
+package de.hamm.googleplaypublisher;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PublishJournalTest {
+	private static final String PACKAGE_NAME = "de.hamm.test";
+	private static final ApkMetadata APK = new ApkMetadata(PACKAGE_NAME, 10, "1.0", "14", 1024, "sha1", "sha256");
+	private static final ApkMetadata OTHER_APK =
+			new ApkMetadata(PACKAGE_NAME, 11, "1.1", "14", 2048, "otherSha1", "otherSha256");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void resumesStepsOfPreviousBuild() throws Exception {
+		File previousFile = createPreviousJournal(Arrays.asList(APK), TimeUnit.HOURS.toSeconds(1), false);
+		PublishJournal previousJournal = PublishJournal.load(previousFile);
+		PublishJournal journal = new PublishJournal(newFile(), PACKAGE_NAME, Arrays.asList(APK));
+
+		assertTrue(previousJournal.isResumableBy(journal));
+		journal.resumeFrom(previousJournal);
+
+		assertEquals("edit", journal.getAppEditId());
+		assertEquals(Integer.valueOf(10), journal.getVersionCode(APK));
+		assertTrue(journal.isTracksUpdated("beta [10]"));
+		assertTrue(journal.isListingPublished(10, "en-US", "Bug fixes"));
+		assertFalse(journal.isListingPublished(10, "en-US", "Other bug fixes"));
+	}
+
+	@Test
+	public void persistsEveryStep() throws Exception {
+		File file = newFile();
+		PublishJournal journal = new PublishJournal(file, PACKAGE_NAME, Arrays.asList(APK));
+		journal.setAppEdit("edit", "1");
+		journal.setVersionCode(APK, 10);
+
+		PublishJournal loadedJournal = PublishJournal.load(file);
+
+		assertEquals("edit", loadedJournal.getAppEditId());
+		assertEquals(Integer.valueOf(10), loadedJournal.getVersionCode(APK));
+		assertNull(loadedJournal.getVersionCode(OTHER_APK));
+	}
+
+	@Test
+	public void doesNotResumeCommittedAppEdit() throws Exception {
+		PublishJournal previousJournal = PublishJournal.load(
+				createPreviousJournal(Arrays.asList(APK), TimeUnit.HOURS.toSeconds(1), true));
+
+		assertFalse(previousJournal.isResumableBy(new PublishJournal(newFile(), PACKAGE_NAME, Arrays.asList(APK))));
+	}
+
+	@Test
+	public void doesNotResumeAppEditOfOtherApks() throws Exception {
+		PublishJournal previousJournal = PublishJournal.load(
+				createPreviousJournal(Arrays.asList(APK), TimeUnit.HOURS.toSeconds(1), false));
+
+		assertFalse(previousJournal.isResumableBy(
+				new PublishJournal(newFile(), PACKAGE_NAME, Arrays.asList(APK, OTHER_APK))));
+	}
+
+	@Test
+	public void doesNotResumeAppEditAboutToExpire() throws Exception {
+		PublishJournal previousJournal = PublishJournal.load(
+				createPreviousJournal(Arrays.asList(APK), TimeUnit.MINUTES.toSeconds(1), false));
+
+		assertFalse(previousJournal.isResumableBy(new PublishJournal(newFile(), PACKAGE_NAME, Arrays.asList(APK))));
+	}
+
+	@Test
+	public void loadsNothingWithoutPreviousJournal() throws Exception {
+		assertNull(PublishJournal.load(null));
+		assertNull(PublishJournal.load(newFile()));
+	}
+
+	private File createPreviousJournal(Collection<ApkMetadata> apks, long validitySeconds, boolean committed)
+			throws Exception {
+		File file = newFile();
+		PublishJournal journal = new PublishJournal(file, PACKAGE_NAME, apks);
+		long expiryTimeSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + validitySeconds;
+		journal.setAppEdit("edit", Long.toString(expiryTimeSeconds));
+		journal.setVersionCode(APK, 10);
+		journal.setTracksUpdated("beta [10]");
+		journal.setListingPublished(10, "en-US", "Bug fixes");
+		if (committed) {
+			journal.setCommitted();
+		}
+		return file;
+	}
+
+	private File newFile() throws Exception {
+		File file = temporaryFolder.newFile();
+		if (!file.delete()) {
+			throw new IllegalStateException(String.format("Failed to delete '%s'", file));
+		}
+		return file;
+	}
+}
@@ -0,0 +1,136 @@
+package de.hamm.googleplaypublisher;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PublishSchedulerTest {
+	private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	private final PublishScheduler scheduler = PublishScheduler.getInstance();
+	private final PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void removesQueueOnceIdle() throws Exception {
+		String packageName = "de.hamm.test.idle";
+
+		PublishScheduler.Slot slot = scheduler.acquire(packageName, BetaTrack.NAME, 1, logger);
+		slot.release();
+
+		assertNotNull(slot);
+		assertFalse(scheduler.getQueueDepths().containsKey(packageName));
+	}
+
+	@Test
+	public void queuesPublishesOfSamePackage() throws Exception {
+		String packageName = "de.hamm.test.queue";
+		PublishScheduler.Slot slot = scheduler.acquire(packageName, BetaTrack.NAME, 1, logger);
+		Future<PublishScheduler.Slot> queued = acquireAsync(packageName, AlphaTrack.NAME, 2);
+		awaitQueueDepth(packageName, 1);
+
+		assertBlocked(queued);
+		slot.release();
+
+		PublishScheduler.Slot queuedSlot = queued.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		assertNotNull(queuedSlot);
+		queuedSlot.release();
+		assertFalse(scheduler.getQueueDepths().containsKey(packageName));
+	}
+
+	@Test
+	public void doesNotQueuePublishesOfOtherPackages() throws Exception {
+		PublishScheduler.Slot slot = scheduler.acquire("de.hamm.test.first", BetaTrack.NAME, 1, logger);
+		try {
+			PublishScheduler.Slot otherSlot = acquireAsync("de.hamm.test.second", BetaTrack.NAME, 1)
+					.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			assertNotNull(otherSlot);
+			otherSlot.release();
+		} finally {
+			slot.release();
+		}
+	}
+
+	@Test
+	public void skipsPublishSupersededByHigherVersionCodeInSameTrack() throws Exception {
+		String packageName = "de.hamm.test.superseded";
+		PublishScheduler.Slot slot = scheduler.acquire(packageName, BetaTrack.NAME, 1, logger);
+		Future<PublishScheduler.Slot> lower = acquireAsync(packageName, BetaTrack.NAME, 2);
+		awaitQueueDepth(packageName, 1);
+		Future<PublishScheduler.Slot> higher = acquireAsync(packageName, BetaTrack.NAME, 3);
+
+		assertNull(lower.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+		assertBlocked(higher);
+		slot.release();
+
+		PublishScheduler.Slot higherSlot = higher.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		assertNotNull(higherSlot);
+		higherSlot.release();
+	}
+
+	@Test
+	public void doesNotSupersedePublishesOfOtherTracks() throws Exception {
+		String packageName = "de.hamm.test.tracks";
+		PublishScheduler.Slot slot = scheduler.acquire(packageName, BetaTrack.NAME, 1, logger);
+		Future<PublishScheduler.Slot> alpha = acquireAsync(packageName, AlphaTrack.NAME, 2);
+		awaitQueueDepth(packageName, 1);
+		Future<PublishScheduler.Slot> beta = acquireAsync(packageName, BetaTrack.NAME, 3);
+		awaitQueueDepth(packageName, 2);
+
+		assertBlocked(alpha);
+		slot.release();
+
+		PublishScheduler.Slot alphaSlot = alpha.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		assertNotNull(alphaSlot);
+		assertBlocked(beta);
+		alphaSlot.release();
+		PublishScheduler.Slot betaSlot = beta.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		assertNotNull(betaSlot);
+		betaSlot.release();
+	}
+
+	private Future<PublishScheduler.Slot> acquireAsync(final String packageName, final String trackName,
+													   final int versionCode) {
+		return executor.submit(new Callable<PublishScheduler.Slot>() {
+			public PublishScheduler.Slot call() throws InterruptedException {
+				return scheduler.acquire(packageName, trackName, versionCode, logger);
+			}
+		});
+	}
+
+	private void awaitQueueDepth(String packageName, int queueDepth) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!Integer.valueOf(queueDepth).equals(scheduler.getQueueDepths().get(packageName))) {
+			if (System.currentTimeMillis() > deadline) {
+				fail(String.format("Queue of package '%s' did not reach depth %d", packageName, queueDepth));
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	private static void assertBlocked(Future<?> future) throws Exception {
+		try {
+			future.get(100, TimeUnit.MILLISECONDS);
+			fail("Publish has not been queued");
+		} catch (TimeoutException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package de.hamm.googleplaypublisher;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+	@Test
+	public void grantsBurstWithoutWaiting() throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(10, 3);
+
+		assertEquals(0, rateLimiter.acquire(1));
+		assertEquals(0, rateLimiter.acquire(2));
+	}
+
+	@Test
+	public void waitsForRefillOnceBurstIsUsed() throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(10, 2);
+		rateLimiter.acquire(2);
+
+		long waitMillis = rateLimiter.acquire(1);
+
+		assertTrue(String.valueOf(waitMillis), waitMillis > 0 && waitMillis <= 100);
+	}
+
+	@Test
+	public void waitsWhileBlocked() throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(10, 20);
+		rateLimiter.blockFor(50);
+
+		long waitMillis = rateLimiter.acquire(1);
+
+		assertTrue(String.valueOf(waitMillis), waitMillis > 0 && waitMillis <= 50);
+	}
+
+	@Test
+	public void sharesRateLimiterPerAccount() {
+		assertSame(RateLimiter.forAccount("rate-limiter-test"), RateLimiter.forAccount("rate-limiter-test"));
+	}
+}
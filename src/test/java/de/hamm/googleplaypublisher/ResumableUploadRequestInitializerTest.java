@@ -0,0 +1,91 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.util.NanoClock;
+import com.google.api.client.util.Sleeper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResumableUploadRequestInitializerTest {
+	private static final HttpRequestInitializer NO_OP_INITIALIZER = new HttpRequestInitializer() {
+		public void initialize(HttpRequest request) {
+		}
+	};
+	private static final Sleeper NO_OP_SLEEPER = new Sleeper() {
+		public void sleep(long millis) {
+		}
+	};
+	private final FakeNanoClock nanoClock = new FakeNanoClock();
+	private ResumableUploadRequestInitializer initializer;
+
+	@Before
+	public void setUp() {
+		initializer = new ResumableUploadRequestInitializer(NO_OP_INITIALIZER, 10, nanoClock, NO_OP_SLEEPER);
+	}
+
+	@Test
+	public void resumesChunkUntilElapsedLimit() throws Exception {
+		HttpRequest request = createChunkRequest();
+
+		assertTrue(resume(request));
+		nanoClock.advanceMillis(ResumableUploadRequestInitializer.MAX_RESUME_ELAPSED_MILLIS + 1);
+		assertFalse(resume(request));
+	}
+
+	@Test
+	public void resumesLaterChunkAfterElapsedLimitOfUpload() throws Exception {
+		assertTrue(resume(createChunkRequest()));
+		nanoClock.advanceMillis(2L * ResumableUploadRequestInitializer.MAX_RESUME_ELAPSED_MILLIS);
+
+		assertTrue(resume(createChunkRequest()));
+	}
+
+	@Test
+	public void limitsResumeAttemptsOfWholeUpload() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			assertTrue(resume(createChunkRequest()));
+		}
+
+		assertFalse(resume(createChunkRequest()));
+	}
+
+	@Test
+	public void doesNotResumeRequestsWithoutContentRange() throws Exception {
+		HttpRequest request = createChunkRequest();
+		request.getHeaders().setContentRange(null);
+
+		assertFalse(resume(request));
+	}
+
+	private HttpRequest createChunkRequest() throws IOException {
+		HttpRequest request = new MockHttpTransport().createRequestFactory(initializer)
+				.buildPutRequest(new GenericUrl("https://www.googleapis.com/upload/session"), null);
+		request.getHeaders().setContentRange("bytes 0-1023/4096");
+		return request;
+	}
+
+	private static boolean resume(HttpRequest request) throws IOException {
+		return request.getIOExceptionHandler().handleIOException(request, true);
+	}
+
+	private static class FakeNanoClock implements NanoClock {
+		private long nanos;
+
+		public long nanoTime() {
+			return nanos;
+		}
+
+		private void advanceMillis(long millis) {
+			nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package de.hamm.googleplaypublisher;
+
+import com.google.api.services.androidpublisher.model.Track;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrackUpdatePlanTest {
+	@Test
+	public void publishesToTargetTrackBeforeUnpublishingLowerVersions() {
+		Map<String, Track> currentTracks = new HashMap<String, Track>();
+		currentTracks.put(BetaTrack.NAME, createTrack(BetaTrack.NAME, 10));
+		currentTracks.put(AlphaTrack.NAME, createTrack(AlphaTrack.NAME, 9, 12));
+
+		List<TrackUpdatePlan.Update> updates =
+				new TrackUpdatePlan(new ProductionTrack(null), Arrays.asList(11), currentTracks).getUpdates();
+
+		assertEquals(3, updates.size());
+		assertEquals(ProductionTrack.NAME_PRODUCTION, updates.get(0).getTrackName());
+		assertEquals(Arrays.asList(11), updates.get(0).getVersionCodes());
+		assertEquals(BetaTrack.NAME, updates.get(1).getTrackName());
+		assertEquals(Collections.<Integer>emptyList(), updates.get(1).getVersionCodes());
+		assertEquals(AlphaTrack.NAME, updates.get(2).getTrackName());
+		assertEquals(Arrays.asList(12), updates.get(2).getVersionCodes());
+	}
+
+	@Test
+	public void skipsTracksThatDoNotChange() {
+		Map<String, Track> currentTracks = new HashMap<String, Track>();
+		currentTracks.put(BetaTrack.NAME, createTrack(BetaTrack.NAME, 11, 10));
+		currentTracks.put(AlphaTrack.NAME, createTrack(AlphaTrack.NAME, 12));
+
+		List<TrackUpdatePlan.Update> updates =
+				new TrackUpdatePlan(new BetaTrack(), Arrays.asList(10, 11), currentTracks).getUpdates();
+
+		assertTrue(updates.isEmpty());
+	}
+
+	@Test
+	public void unpublishesAllVersionsFromRolloutWhenPublishingToProduction() {
+		Map<String, Track> currentTracks = new HashMap<String, Track>();
+		currentTracks.put(ProductionTrack.NAME_ROLLOUT, createTrack(ProductionTrack.NAME_ROLLOUT, 8));
+
+		List<TrackUpdatePlan.Update> updates =
+				new TrackUpdatePlan(new ProductionTrack(null), Arrays.asList(9), currentTracks).getUpdates();
+
+		assertEquals(2, updates.size());
+		assertEquals(ProductionTrack.NAME_ROLLOUT, updates.get(1).getTrackName());
+		assertNull(updates.get(1).getApiTrack().getVersionCodes());
+	}
+
+	@Test
+	public void updatesRolloutWhenOnlyTheUserFractionChanges() {
+		Map<String, Track> currentTracks = new HashMap<String, Track>();
+		currentTracks.put(ProductionTrack.NAME_ROLLOUT,
+				createTrack(ProductionTrack.NAME_ROLLOUT, 9).setUserFraction(0.05));
+
+		List<TrackUpdatePlan.Update> updates = new TrackUpdatePlan(
+				new ProductionTrack(new ProductionTrack.StagedRollout(0.2)), Arrays.asList(9), currentTracks)
+				.getUpdates();
+
+		assertEquals(1, updates.size());
+		assertEquals(0.2, updates.get(0).getApiTrack().getUserFraction(), 0);
+	}
+
+	@Test
+	public void splitsVersionCodesAtCurrentVersionCode() {
+		List<Integer> versionCodes = Arrays.asList(8, 10, 12);
+
+		assertEquals(Arrays.asList(12), TrackUpdatePlan.getHigherVersionCodes(10, versionCodes));
+		assertEquals(Arrays.asList(8, 10), TrackUpdatePlan.getLowerVersionCodes(10, versionCodes));
+	}
+
+	private static Track createTrack(String name, Integer... versionCodes) {
+		return new Track().setTrack(name).setVersionCodes(Arrays.asList(versionCodes));
+	}
+}
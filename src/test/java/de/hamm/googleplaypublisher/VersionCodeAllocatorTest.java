@@ -0,0 +1,88 @@
+package de.hamm.googleplaypublisher;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class VersionCodeAllocatorTest {
+	private final VersionCodeAllocator allocator = VersionCodeAllocator.getInstance();
+
+	@Test
+	public void allocatesAboveHighestRemoteVersionCodeWithoutSyncingAgain() {
+		CountingRemoteSync remoteSync = new CountingRemoteSync(41);
+
+		assertEquals(42, allocator.allocate("de.hamm.test.allocate", remoteSync));
+		assertEquals(43, allocator.allocate("de.hamm.test.allocate", remoteSync));
+		assertEquals(1, remoteSync.syncCount.get());
+	}
+
+	@Test
+	public void syncsAgainAfterInvalidate() {
+		String packageName = "de.hamm.test.invalidate";
+		allocator.allocate(packageName, new CountingRemoteSync(10));
+		allocator.invalidate(packageName);
+
+		assertEquals(101, allocator.allocate(packageName, new CountingRemoteSync(100)));
+	}
+
+	@Test
+	public void neverAllocatesBelowPreviouslyAllocatedVersionCode() {
+		String packageName = "de.hamm.test.monotonic";
+		allocator.allocate(packageName, new CountingRemoteSync(50));
+		allocator.invalidate(packageName);
+
+		assertEquals(52, allocator.allocate(packageName, new CountingRemoteSync(5)));
+	}
+
+	@Test
+	public void allocatesUniqueVersionCodesConcurrently() throws Exception {
+		final String packageName = "de.hamm.test.concurrent";
+		final CountingRemoteSync remoteSync = new CountingRemoteSync(0);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> versionCodes = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 400; i++) {
+				versionCodes.add(executor.submit(new Callable<Integer>() {
+					public Integer call() {
+						if (remoteSync.syncCount.get() % 7 == 0) {
+							allocator.invalidate(packageName);
+						}
+						return allocator.allocate(packageName, remoteSync);
+					}
+				}));
+			}
+			Set<Integer> uniqueVersionCodes = new HashSet<Integer>();
+			for (Future<Integer> i : versionCodes) {
+				uniqueVersionCodes.add(i.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(400, uniqueVersionCodes.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class CountingRemoteSync implements VersionCodeAllocator.RemoteSync {
+		private final int highestVersionCode;
+		private final AtomicInteger syncCount = new AtomicInteger();
+
+		private CountingRemoteSync(int highestVersionCode) {
+			this.highestVersionCode = highestVersionCode;
+		}
+
+		public int fetchHighestVersionCode() {
+			syncCount.incrementAndGet();
+			return highestVersionCode;
+		}
+	}
+}